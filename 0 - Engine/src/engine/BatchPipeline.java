@@ -0,0 +1,171 @@
+package engine;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.LongFunction;
+
+/**
+ * The BatchPipeline class solves every board of a BoardSource with parsing, solving and writing
+ * running at the same time: a reader thread parses the boards in chunks and hands every chunk to
+ * a pool of solver threads, while the calling thread takes the chunks back in the order of the
+ * file and passes their results to a sink. So the results come out in the order of the input,
+ * however long every board takes to solve.
+ * The chunks in flight wait in a bounded queue, so the reader never gets more than a fixed
+ * number of chunks ahead of the writer and the memory stays the same for files of any size.
+ * The solver is called by all the solver threads at once, so it must keep no state between
+ * boards.
+ *
+ * @param <R> The result of one board.
+ */
+public final class BatchPipeline<R> {
+
+    // boards parsed and solved together, so a task is large enough to pay for its hand over
+    public static final int CHUNK = 256;
+
+    /**
+     * The ResultSink interface receives the results in the order of the input.
+     * @param <R> The result of one board.
+     */
+    public interface ResultSink<R> {
+        /**
+         * The accept method takes the result of one board.
+         * @param index The number of the board in the input, from 0.
+         * @param board The packed board.
+         * @param result The result of the solver.
+         * @throws IOException if the result cannot be written.
+         */
+        void accept(long index, long board, R result) throws IOException;
+    }
+
+    // solves one board
+    private final LongFunction<R> solver;
+
+    // number of solver threads
+    private final int threads;
+
+    // number of chunks parsed but not yet written
+    private final int window;
+
+    /**
+     * Creates a pipeline with 4 chunks in flight per solver thread.
+     * @param solver Solves one board, called by all the solver threads at once.
+     * @param threads Number of solver threads, at least 1.
+     */
+    public BatchPipeline(LongFunction<R> solver, int threads) {
+        this(solver, threads, 4 * Math.max(1, threads));
+    }
+
+    /**
+     * Creates a pipeline.
+     * @param solver Solves one board, called by all the solver threads at once.
+     * @param threads Number of solver threads, at least 1.
+     * @param window Number of chunks parsed but not yet written, at least 1.
+     */
+    public BatchPipeline(LongFunction<R> solver, int threads, int window) {
+        this.solver = solver;
+        this.threads = Math.max(1, threads);
+        this.window = Math.max(1, window);
+    }
+
+    /**
+     * The Chunk class holds the boards of one chunk and the future of their results, or the
+     * error that ended the input.
+     */
+    private static final class Chunk {
+        // the last chunk, after every board of the input
+        static final Chunk END = new Chunk(null, null, null);
+
+        final long[] boards;
+        final Future<Object[]> results;
+        final Exception error;
+
+        Chunk(long[] boards, Future<Object[]> results, Exception error) {
+            this.boards = boards;
+            this.results = results;
+            this.error = error;
+        }
+    }
+
+    /**
+     * The run method solves every board left in the reader and waits for all of them.
+     * @param boards The input, read by the reader thread until it has no boards left.
+     * @param sink Receives every result on the calling thread, in the order of the input.
+     * @return The number of boards solved.
+     * @throws IOException if the input cannot be read or the sink fails.
+     * @throws IllegalStateException if the solver or the reader throws, with that exception as
+     * the cause.
+     */
+    public long run(BoardSource boards, ResultSink<? super R> sink) throws IOException {
+        BlockingQueue<Chunk> queue = new ArrayBlockingQueue<>(window);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        Thread reader = new Thread(() -> read(boards, pool, queue), "batch-reader");
+        reader.setDaemon(true);
+        reader.start();
+
+        long index = 0;
+        try {
+            for (Chunk chunk = queue.take(); chunk != Chunk.END; chunk = queue.take()) {
+                if (chunk.error instanceof IOException)
+                    throw (IOException) chunk.error;
+                if (chunk.error != null)
+                    throw new IllegalStateException("The batch input failed", chunk.error);
+                Object[] results = chunk.results.get();
+                for (int i = 0; i < chunk.boards.length; i++) {
+                    @SuppressWarnings("unchecked")
+                    R result = (R) results[i];
+                    sink.accept(index++, chunk.boards[i], result);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("The batch was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A board of the batch failed", e.getCause());
+        } finally {
+            reader.interrupt();
+            pool.shutdownNow();
+        }
+        return index;
+    }
+
+    /**
+     * The read method runs on the reader thread: it parses the boards chunk by chunk, gives
+     * every chunk to the pool and queues it, blocking while the queue is full.
+     */
+    private void read(BoardSource boards, ExecutorService pool, BlockingQueue<Chunk> queue) {
+        try {
+            try {
+                while (boards.hasNext()) {
+                    long[] chunk = new long[CHUNK];
+                    int size = 0;
+                    while (size < CHUNK && boards.hasNext())
+                        chunk[size++] = boards.next();
+                    long[] solved = size == CHUNK ? chunk : Arrays.copyOf(chunk, size);
+                    queue.put(new Chunk(solved, pool.submit(() -> solve(solved)), null));
+                }
+            } catch (IOException | RuntimeException e) {
+                // the writer throws the error when it gets to this chunk
+                queue.put(new Chunk(null, null, e));
+            }
+            queue.put(Chunk.END);
+        } catch (InterruptedException e) {
+            // the writer stopped early, nobody takes the chunks anymore
+        }
+    }
+
+    /**
+     * The solve method runs on a solver thread and solves the boards of one chunk.
+     */
+    private Object[] solve(long[] boards) {
+        Object[] results = new Object[boards.length];
+        for (int i = 0; i < boards.length; i++)
+            results[i] = solver.apply(boards[i]);
+        return results;
+    }
+}
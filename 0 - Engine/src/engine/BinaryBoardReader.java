@@ -0,0 +1,173 @@
+package engine;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+
+/**
+ * The BinaryBoardReader class streams the boards of a binary board file, and their results if
+ * the file has a results block. The layout is described by BoardFile. Boards and results are read
+ * through two fixed buffers at their own positions of the file, so a board and its result are
+ * read together without loading the file, and reading a board is copying 8 bytes.
+ */
+public final class BinaryBoardReader implements BoardSource {
+
+    // bytes read from the file at a time, a whole number of records
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final FileChannel channel;
+
+    // the boards and the results read from the file but not yet returned
+    private final ByteBuffer boards = ByteBuffer.allocate(BUFFER_SIZE);
+    private final ByteBuffer results = ByteBuffer.allocate(BUFFER_SIZE);
+
+    // number of boards of the file and number read so far
+    private final long count;
+    private long read;
+
+    // true if the file has a results block
+    private final boolean hasResults;
+
+    // the next positions to read boards and results from
+    private long boardPosition;
+    private long resultPosition;
+
+    // the result of the last board read
+    private int score;
+    private int length;
+    private long path;
+
+    /**
+     * Creates a reader over a channel and reads the header.
+     * @param channel The channel of the file, at its start, closed with the reader.
+     * @throws IOException if the channel fails, the header is not valid or the file is shorter
+     * than its header says.
+     */
+    public BinaryBoardReader(FileChannel channel) throws IOException {
+        this.channel = channel;
+        ByteBuffer header = ByteBuffer.allocate(BoardFile.HEADER_BYTES);
+        readFully(header, 0);
+        header.flip();
+        if (header.getInt() != BoardFile.MAGIC)
+            throw new IOException("Not a binary board file");
+        short version = header.getShort();
+        if (version != BoardFile.VERSION)
+            throw new IOException("Unsupported board file version " + version);
+        short flags = header.getShort();
+        count = header.getLong();
+        if (count < 0 || count > (Long.MAX_VALUE - BoardFile.HEADER_BYTES) / (BoardFile.BOARD_BYTES + BoardFile.RESULT_BYTES))
+            throw new IOException("Not a valid number of boards: " + count);
+        hasResults = (flags & BoardFile.RESULTS) != 0;
+
+        long size = BoardFile.HEADER_BYTES + count * BoardFile.BOARD_BYTES;
+        if (hasResults)
+            size += count * BoardFile.RESULT_BYTES;
+        if (channel.size() < size)
+            throw new EOFException("The board file has " + channel.size() + " bytes, its header needs " + size);
+
+        boardPosition = BoardFile.HEADER_BYTES;
+        resultPosition = BoardFile.HEADER_BYTES + count * BoardFile.BOARD_BYTES;
+        boards.limit(0);
+        results.limit(0);
+    }
+
+    /**
+     * The open method opens a binary board file for reading.
+     * @param file The binary board file.
+     * @return A reader positioned on the first board.
+     * @throws IOException if the file cannot be opened or its header is not valid.
+     */
+    public static BinaryBoardReader open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            return new BinaryBoardReader(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public long count() {
+        return count;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return read < count;
+    }
+
+    /**
+     * The hasResults method tells if the file has a result for every board.
+     * @return true if the file has a results block.
+     */
+    public boolean hasResults() {
+        return hasResults;
+    }
+
+    @Override
+    public long next() throws IOException {
+        if (!hasNext())
+            throw new EOFException("All " + count + " boards were read");
+        if (!boards.hasRemaining())
+            boardPosition += fill(boards, boardPosition, count - read, BoardFile.BOARD_BYTES);
+        long board = boards.getLong();
+
+        if (hasResults) {
+            if (!results.hasRemaining())
+                resultPosition += fill(results, resultPosition, count - read, BoardFile.RESULT_BYTES);
+            score = results.getInt();
+            length = results.getInt();
+            path = results.getLong();
+            if (score < 0 || length < 0 || length > LookaheadBfs.MAX_DEPTH)
+                throw new IOException("Result " + (read + 1) + " is not valid");
+        }
+        read++;
+        return board;
+    }
+
+    /**
+     * The result method returns the result stored for the last board read.
+     * @return The maximum score and its path, with no level statistics.
+     * @throws IllegalStateException if the file has no results or no board was read yet.
+     */
+    public LookaheadBfs.Result result() {
+        if (!hasResults || read == 0)
+            throw new IllegalStateException(hasResults ? "No board was read yet" : "The board file has no results");
+        return new LookaheadBfs.Result(score, path, length, Collections.emptyList());
+    }
+
+    /**
+     * The fill method reads the next records into an empty buffer.
+     * @return The number of bytes read.
+     */
+    private int fill(ByteBuffer buffer, long position, long recordsLeft, int recordBytes) throws IOException {
+        buffer.clear();
+        long bytes = Math.min(BUFFER_SIZE / recordBytes, recordsLeft) * recordBytes;
+        buffer.limit((int) bytes);
+        readFully(buffer, position);
+        buffer.flip();
+        return (int) bytes;
+    }
+
+    /**
+     * The readFully method reads until the buffer is full.
+     */
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position);
+            if (n < 0)
+                throw new EOFException("The board file ends early");
+            position += n;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,179 @@
+package engine;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The BinaryBoardWriter class writes a binary board file, with the layout described by BoardFile.
+ * The number of boards is written in the header first, so the results block has a known place:
+ * boards and results are buffered separately and each buffer is written at its own position of
+ * the file, so a board and its result are written together in one pass.
+ */
+public final class BinaryBoardWriter implements Closeable {
+
+    // bytes written to the file at a time, a whole number of records
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final FileChannel channel;
+    private final ByteBuffer boards = ByteBuffer.allocate(BUFFER_SIZE);
+    private final ByteBuffer results = ByteBuffer.allocate(BUFFER_SIZE);
+
+    // number of boards announced in the header and number written so far
+    private final long count;
+    private long written;
+
+    // true if every board is written with its result
+    private final boolean withResults;
+
+    // the next positions to write boards and results to
+    private long boardPosition;
+    private long resultPosition;
+
+    /**
+     * Creates a writer over a channel and writes the header.
+     * @param channel The channel of the file, at its start, closed with the writer.
+     * @param count The number of boards that will be written.
+     * @param withResults true if every board is written with its result.
+     * @throws IOException if the channel fails.
+     */
+    public BinaryBoardWriter(FileChannel channel, long count, boolean withResults) throws IOException {
+        if (count < 0)
+            throw new IllegalArgumentException("Not a valid number of boards: " + count);
+        this.channel = channel;
+        this.count = count;
+        this.withResults = withResults;
+
+        ByteBuffer header = ByteBuffer.allocate(BoardFile.HEADER_BYTES);
+        header.putInt(BoardFile.MAGIC);
+        header.putShort(BoardFile.VERSION);
+        header.putShort(withResults ? BoardFile.RESULTS : 0);
+        header.putLong(count);
+        header.flip();
+        writeFully(header, 0);
+
+        boardPosition = BoardFile.HEADER_BYTES;
+        resultPosition = BoardFile.HEADER_BYTES + count * BoardFile.BOARD_BYTES;
+    }
+
+    /**
+     * The create method creates or truncates a binary board file.
+     * @param file The file to write.
+     * @param count The number of boards that will be written.
+     * @param withResults true if every board is written with its result.
+     * @return A writer positioned on the first board.
+     * @throws IOException if the file cannot be created.
+     */
+    public static BinaryBoardWriter create(Path file, long count, boolean withResults) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            return new BinaryBoardWriter(channel, count, withResults);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * The write method writes the next board of a file without results.
+     * @param board The packed board.
+     * @throws IOException if the file fails.
+     */
+    public void write(long board) throws IOException {
+        if (withResults)
+            throw new IllegalStateException("Every board of this file needs its result");
+        putBoard(board);
+    }
+
+    /**
+     * The write method writes the next board of a file with results, and its result.
+     * @param board The packed board.
+     * @param score The maximum score.
+     * @param path The moves of the path, 2 bits each, the first move in the highest bits.
+     * @param length The number of moves of the path.
+     * @throws IOException if the file fails.
+     */
+    public void write(long board, int score, long path, int length) throws IOException {
+        if (!withResults)
+            throw new IllegalStateException("This file has no results");
+        if (length < 0 || length > LookaheadBfs.MAX_DEPTH)
+            throw new IllegalArgumentException("Not a valid path length: " + length);
+        putBoard(board);
+        if (!results.hasRemaining())
+            resultPosition += flush(results, resultPosition);
+        results.putInt(score);
+        results.putInt(length);
+        results.putLong(path);
+    }
+
+    /**
+     * The write method writes the next board of a file with results, and its result.
+     * @param board The packed board.
+     * @param score The maximum score.
+     * @param letters The moves of the path, one letter each (L, R, U or D).
+     * @throws IOException if the file fails.
+     */
+    public void write(long board, int score, CharSequence letters) throws IOException {
+        long path = 0;
+        for (int i = 0; i < letters.length(); i++)
+            path = (path << 2) | Bitboard.moveOf(letters.charAt(i));
+        write(board, score, path, letters.length());
+    }
+
+    /**
+     * The write method writes the next board of a file with results, and its BFS result.
+     * @param board The packed board.
+     * @param result The maximum score and its path.
+     * @throws IOException if the file fails.
+     */
+    public void write(long board, LookaheadBfs.Result result) throws IOException {
+        write(board, result.maxScore, result.path, result.length);
+    }
+
+    private void putBoard(long board) throws IOException {
+        if (written == count)
+            throw new IllegalStateException("All " + count + " boards were written");
+        if (!boards.hasRemaining())
+            boardPosition += flush(boards, boardPosition);
+        boards.putLong(board);
+        written++;
+    }
+
+    /**
+     * The flush method writes a buffer at a position of the file and empties it.
+     * @return The number of bytes written.
+     */
+    private int flush(ByteBuffer buffer, long position) throws IOException {
+        buffer.flip();
+        int bytes = buffer.remaining();
+        writeFully(buffer, position);
+        buffer.clear();
+        return bytes;
+    }
+
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining())
+            position += channel.write(buffer, position);
+    }
+
+    /**
+     * The close method writes what is left in the buffers and closes the file.
+     * @throws IOException if the file fails, or fewer boards were written than the header says.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            boardPosition += flush(boards, boardPosition);
+            if (withResults)
+                resultPosition += flush(results, resultPosition);
+            if (written != count)
+                throw new IOException("The header announces " + count + " boards, " + written + " were written");
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,491 @@
+package engine;
+
+/**
+ * The Bitboard class is the shared board engine used by all milestones. A 4 by 4 board is packed
+ * into a single long: every cell is a 4 bit nibble holding the log2 of the tile value, and 0 for
+ * an empty cell. Cell (row, col) is stored in nibble number row * 4 + col, so row 0 is the lowest
+ * 16 bits of the long and column 0 is the lowest nibble of each row.
+ * All methods are static and work on the long value directly, none of them allocates, so the
+ * searches can copy a board just by assigning it to another variable instead of deepCopy2DArray.
+ * Moves use the same indexes as the movesScores arrays in the milestones: 0 is left, 1 is right,
+ * 2 is up and 3 is down.
+ * Every row transition is precomputed once when the class is loaded: a table indexed by the 16
+ * bit row holds the row after the move, a changed flag and the merge score, so a full move is
+ * four table lookups (plus a transpose for up and down). A second table holds, for every row, which
+ * of left and right change it, so the legal moves of a board and the end of the game are found
+ * with eight lookups and without making any move.
+ * The largest tile that fits in a nibble is 32768 (2^15); two 32768 tiles are never merged.
+ */
+public final class Bitboard {
+
+    // move indexes, same order as movesScores in the milestones
+    public static final int LEFT = 0;
+    public static final int RIGHT = 1;
+    public static final int UP = 2;
+    public static final int DOWN = 3;
+
+    // letters used for each move index in the outputs
+    public static final char[] MOVE_LETTERS = {'L', 'R', 'U', 'D'};
+
+    // holds the size of the board
+    public static final int SIZE = 4;
+
+    // the largest exponent a nibble can hold
+    public static final int MAX_EXPONENT = 15;
+
+    // the board with no tiles on it
+    public static final long EMPTY_BOARD = 0L;
+
+    // mask for a single row (or a single column after transpose)
+    private static final long ROW_MASK = 0xFFFFL;
+
+    // number of different 16 bit rows
+    private static final int ROWS = 1 << 16;
+
+    // row transition tables, indexed by the 16 bit row. Each entry holds the row after
+    // the move in bits 0-15, the changed flag in bit 16 and the merge score divided by 4
+    // (every merge score is a multiple of 4) in bits 17-31.
+    private static final int[] ROW_LEFT = new int[ROWS];
+    private static final int[] ROW_RIGHT = new int[ROWS];
+
+    // for every row, bit LEFT set if moving left changes it and bit RIGHT if moving right does,
+    // on a transposed board the same bits shifted by UP are the up and down moves
+    private static final byte[] ROW_MOVES = new byte[ROWS];
+
+    // bit of the changed flag and shift of the score in a table entry
+    private static final int CHANGED = 1 << 16;
+    private static final int SCORE_SHIFT = 17;
+
+    // holds how long building the tables took, in nanoseconds
+    private static final long TABLE_BUILD_NANOS;
+
+    static {
+        long start = System.nanoTime();
+        for (int row = 0; row < ROWS; row++) {
+            int left = slideRowLeft(row);
+            int right = reverseRow(slideRowLeft(reverseRow(row)));
+            int score = (rowScore(row) >>> 2) << SCORE_SHIFT;
+            ROW_LEFT[row] = left | (left != row ? CHANGED : 0) | score;
+            ROW_RIGHT[row] = right | (right != row ? CHANGED : 0) | score;
+            ROW_MOVES[row] = (byte) ((left != row ? 1 << LEFT : 0) | (right != row ? 1 << RIGHT : 0));
+        }
+        TABLE_BUILD_NANOS = System.nanoTime() - start;
+    }
+
+    private Bitboard() {
+    }
+
+    /**
+     * The tableBuildMillis method returns how long building the row tables took
+     * when the class was loaded.
+     * @return Build time in milliseconds.
+     */
+    public static double tableBuildMillis() {
+        return TABLE_BUILD_NANOS / 1_000_000.0;
+    }
+
+    /**
+     * The rowLeft method looks up a row in the move left table.
+     * @param row The 16 bit row.
+     * @return The row after moving left.
+     */
+    public static int rowLeft(int row) {
+        return ROW_LEFT[row] & 0xFFFF;
+    }
+
+    /**
+     * The rowRight method looks up a row in the move right table.
+     * @param row The 16 bit row.
+     * @return The row after moving right.
+     */
+    public static int rowRight(int row) {
+        return ROW_RIGHT[row] & 0xFFFF;
+    }
+
+    /**
+     * The rowChangedLeft method looks up the changed flag of a row in the move left table.
+     * @param row The 16 bit row.
+     * @return true if moving left changes the row.
+     */
+    public static boolean rowChangedLeft(int row) {
+        return (ROW_LEFT[row] & CHANGED) != 0;
+    }
+
+    /**
+     * The rowChangedRight method looks up the changed flag of a row in the move right table.
+     * @param row The 16 bit row.
+     * @return true if moving right changes the row.
+     */
+    public static boolean rowChangedRight(int row) {
+        return (ROW_RIGHT[row] & CHANGED) != 0;
+    }
+
+    /**
+     * The rowMergeScore method looks up the merge score of a row, which is the same
+     * for both directions.
+     * @param row The 16 bit row.
+     * @return Sum of the tiles created by merging.
+     */
+    public static int rowMergeScore(int row) {
+        return (ROW_LEFT[row] >>> SCORE_SHIFT) << 2;
+    }
+
+    /**
+     * The pack method converts a 4by4 int board into its packed long form.
+     * @param board The 4by4 board, every element is 0 or a power of two.
+     * @return The packed board.
+     */
+    public static long pack(int[][] board) {
+        long packed = EMPTY_BOARD;
+        for (int row = 0; row < SIZE; row++) {
+            for (int col = 0; col < SIZE; col++) {
+                packed = setTile(packed, row, col, board[row][col]);
+            }
+        }
+        return packed;
+    }
+
+    /**
+     * The unpack method converts a packed board into a new 4by4 int board.
+     * @param board The packed board.
+     * @return A new 4by4 board holding the tile values.
+     */
+    public static int[][] unpack(long board) {
+        int[][] unpacked = new int[SIZE][SIZE];
+        unpack(board, unpacked);
+        return unpacked;
+    }
+
+    /**
+     * The unpack method writes the tile values of a packed board into an existing 4by4 board,
+     * so callers that keep an int[][] around do not allocate.
+     * @param board The packed board.
+     * @param into The 4by4 board that receives the tile values.
+     */
+    public static void unpack(long board, int[][] into) {
+        for (int row = 0; row < SIZE; row++) {
+            for (int col = 0; col < SIZE; col++) {
+                into[row][col] = getTile(board, row, col);
+            }
+        }
+    }
+
+    /**
+     * The getExponent method returns the nibble of one cell.
+     * @param board The packed board.
+     * @param index The cell index, row * 4 + col.
+     * @return log2 of the tile value, 0 for an empty cell.
+     */
+    public static int getExponent(long board, int index) {
+        return (int) (board >>> (index << 2)) & 0xF;
+    }
+
+    /**
+     * The setExponent method returns the board with the nibble of one cell replaced.
+     * @param board The packed board.
+     * @param index The cell index, row * 4 + col.
+     * @param exponent log2 of the new tile value, 0 for an empty cell.
+     * @return The new packed board.
+     */
+    public static long setExponent(long board, int index, int exponent) {
+        int shift = index << 2;
+        return (board & ~(0xFL << shift)) | ((long) exponent << shift);
+    }
+
+    /**
+     * The getTile method returns the tile value at a row and column.
+     * @param board The packed board.
+     * @param row Row of the cell.
+     * @param col Column of the cell.
+     * @return The tile value, 0 for an empty cell.
+     */
+    public static int getTile(long board, int row, int col) {
+        int exponent = getExponent(board, row * SIZE + col);
+        return exponent == 0 ? 0 : 1 << exponent;
+    }
+
+    /**
+     * The setTile method returns the board with the tile at a row and column replaced.
+     * @param board The packed board.
+     * @param row Row of the cell.
+     * @param col Column of the cell.
+     * @param value The new tile value, 0 or a power of two up to 32768.
+     * @return The new packed board.
+     */
+    public static long setTile(long board, int row, int col, int value) {
+        return setExponent(board, row * SIZE + col, exponentOf(value));
+    }
+
+    /**
+     * The exponentOf method converts a tile value into the nibble stored for it.
+     * @param value 0 or a power of two up to 32768.
+     * @return log2 of value, 0 for 0.
+     */
+    public static int exponentOf(int value) {
+        if (value == 0)
+            return 0;
+        int exponent = Integer.numberOfTrailingZeros(value);
+        if (value != (1 << exponent) || exponent == 0 || exponent > MAX_EXPONENT)
+            throw new IllegalArgumentException("Not a valid tile value: " + value);
+        return exponent;
+    }
+
+    /**
+     * The moveOf method converts a move letter of the outputs into its move.
+     * @param letter L, R, U or D.
+     * @return LEFT, RIGHT, UP or DOWN.
+     */
+    public static int moveOf(char letter) {
+        for (int move = 0; move < 4; move++) {
+            if (MOVE_LETTERS[move] == letter)
+                return move;
+        }
+        throw new IllegalArgumentException("Not a move letter: " + letter);
+    }
+
+    /**
+     * The move method applies one of the four moves to the board.
+     * @param board The packed board.
+     * @param move LEFT, RIGHT, UP or DOWN.
+     * @return The board after the move.
+     */
+    public static long move(long board, int move) {
+        switch (move) {
+            case LEFT:
+                return moveLeft(board);
+            case RIGHT:
+                return moveRight(board);
+            case UP:
+                return moveUp(board);
+            default:
+                return moveDown(board);
+        }
+    }
+
+    /**
+     * The moveScore method returns the score of the merges made by one of the four moves.
+     * The score of a row does not depend on the direction it slides, so left and right share
+     * the row scores and up and down share the column scores.
+     * @param board The packed board.
+     * @param move LEFT, RIGHT, UP or DOWN.
+     * @return Sum of the tiles created by merging.
+     */
+    public static int moveScore(long board, int move) {
+        if (move == LEFT || move == RIGHT)
+            return rowsScore(board);
+        return rowsScore(transpose(board));
+    }
+
+    /**
+     * The moveLeft method has all 2048 game rules for the action move left.
+     * @param board The packed board.
+     * @return The board after moving left.
+     */
+    public static long moveLeft(long board) {
+        return (long) (ROW_LEFT[(int) (board & ROW_MASK)] & 0xFFFF)
+                | (long) (ROW_LEFT[(int) ((board >>> 16) & ROW_MASK)] & 0xFFFF) << 16
+                | (long) (ROW_LEFT[(int) ((board >>> 32) & ROW_MASK)] & 0xFFFF) << 32
+                | (long) (ROW_LEFT[(int) (board >>> 48)] & 0xFFFF) << 48;
+    }
+
+    /**
+     * The moveRight method has all 2048 game rules for the action move right.
+     * @param board The packed board.
+     * @return The board after moving right.
+     */
+    public static long moveRight(long board) {
+        return (long) (ROW_RIGHT[(int) (board & ROW_MASK)] & 0xFFFF)
+                | (long) (ROW_RIGHT[(int) ((board >>> 16) & ROW_MASK)] & 0xFFFF) << 16
+                | (long) (ROW_RIGHT[(int) ((board >>> 32) & ROW_MASK)] & 0xFFFF) << 32
+                | (long) (ROW_RIGHT[(int) (board >>> 48)] & 0xFFFF) << 48;
+    }
+
+    /**
+     * The moveUp method has all 2048 game rules for the action move up. Columns become rows
+     * after a transpose, so moving up is moving left on the transposed board.
+     * @param board The packed board.
+     * @return The board after moving up.
+     */
+    public static long moveUp(long board) {
+        return transpose(moveLeft(transpose(board)));
+    }
+
+    /**
+     * The moveDown method has all 2048 game rules for the action move down. Columns become rows
+     * after a transpose, so moving down is moving right on the transposed board.
+     * @param board The packed board.
+     * @return The board after moving down.
+     */
+    public static long moveDown(long board) {
+        return transpose(moveRight(transpose(board)));
+    }
+
+    /**
+     * The transpose method swaps rows and columns, cell (row, col) moves to (col, row).
+     * @param board The packed board.
+     * @return The transposed board.
+     */
+    public static long transpose(long board) {
+        long a1 = board & 0xF0F00F0FF0F00F0FL;
+        long a2 = board & 0x0000F0F00000F0F0L;
+        long a3 = board & 0x0F0F00000F0F0000L;
+        long a = a1 | (a2 << 12) | (a3 >>> 12);
+        long b1 = a & 0xFF00FF0000FF00FFL;
+        long b2 = a & 0x00FF00FF00000000L;
+        long b3 = a & 0x00000000FF00FF00L;
+        return b1 | (b2 >>> 24) | (b3 << 24);
+    }
+
+    /**
+     * The legalMoves method finds the moves that change the board, without making any of them.
+     * Up and down are left and right on the transposed board.
+     * @param board The packed board.
+     * @return A bitmask with bit LEFT, RIGHT, UP or DOWN set for every move that changes the board.
+     */
+    public static int legalMoves(long board) {
+        long columns = transpose(board);
+        int rows = ROW_MOVES[(int) board & 0xFFFF] | ROW_MOVES[(int) (board >>> 16) & 0xFFFF]
+                | ROW_MOVES[(int) (board >>> 32) & 0xFFFF] | ROW_MOVES[(int) (board >>> 48) & 0xFFFF];
+        int cols = ROW_MOVES[(int) columns & 0xFFFF] | ROW_MOVES[(int) (columns >>> 16) & 0xFFFF]
+                | ROW_MOVES[(int) (columns >>> 32) & 0xFFFF] | ROW_MOVES[(int) (columns >>> 48) & 0xFFFF];
+        return rows | (cols << UP);
+    }
+
+    /**
+     * The isTerminal method checks if no move changes the board, which ends the game. A board
+     * with a tile and an empty cell always has a move, only a full board needs the table lookups.
+     * @param board The packed board.
+     * @return true if no move changes the board.
+     */
+    public static boolean isTerminal(long board) {
+        if (board != EMPTY_BOARD && emptyMask(board) != 0)
+            return false;
+        return legalMoves(board) == 0;
+    }
+
+    /**
+     * The countEmpty method counts the empty cells of the board.
+     * @param board The packed board.
+     * @return Number of empty cells.
+     */
+    public static int countEmpty(long board) {
+        return Long.bitCount(emptyMask(board));
+    }
+
+    /**
+     * The emptyMask method marks the empty cells of the board.
+     * @param board The packed board.
+     * @return A long with the lowest bit of the nibble of every empty cell set, so cell
+     *         index i is empty when bit i * 4 is set.
+     */
+    public static long emptyMask(long board) {
+        // fold every nibble into its lowest bit, then keep the nibbles that stayed zero
+        long folded = board | ((board >>> 2) & 0x3333333333333333L);
+        folded |= folded >>> 1;
+        return ~folded & 0x1111111111111111L;
+    }
+
+    /**
+     * The maxExponent method finds the largest nibble on the board.
+     * @param board The packed board.
+     * @return log2 of the largest tile, 0 for an empty board.
+     */
+    public static int maxExponent(long board) {
+        int max = 0;
+        for (int index = 0; index < SIZE * SIZE; index++) {
+            int exponent = (int) (board >>> (index << 2)) & 0xF;
+            if (exponent > max)
+                max = exponent;
+        }
+        return max;
+    }
+
+    /**
+     * The maxTile method finds the largest tile on the board.
+     * @param board The packed board.
+     * @return The largest tile value, 0 for an empty board.
+     */
+    public static int maxTile(long board) {
+        int exponent = maxExponent(board);
+        return exponent == 0 ? 0 : 1 << exponent;
+    }
+
+    /**
+     * The rowsScore method adds up the merge score of the four rows when they slide.
+     * @param board The packed board.
+     * @return Sum of the tiles created by merging in all rows.
+     */
+    private static int rowsScore(long board) {
+        return ((ROW_LEFT[(int) (board & ROW_MASK)] >>> SCORE_SHIFT)
+                + (ROW_LEFT[(int) ((board >>> 16) & ROW_MASK)] >>> SCORE_SHIFT)
+                + (ROW_LEFT[(int) ((board >>> 32) & ROW_MASK)] >>> SCORE_SHIFT)
+                + (ROW_LEFT[(int) (board >>> 48)] >>> SCORE_SHIFT)) << 2;
+    }
+
+    /**
+     * The slideRowLeft method slides and merges one 16 bit row toward column 0. Each tile
+     * merges at most once per move, and merges happen from column 0 outward. It is only
+     * used to build the row tables.
+     * @param row The row, four nibbles with column 0 in the lowest nibble.
+     * @return The row after moving left.
+     */
+    static int slideRowLeft(int row) {
+        int result = 0;
+        int out = 0;            // next column to write to
+        int pending = 0;        // last tile that is still allowed to merge
+
+        for (int col = 0; col < SIZE; col++) {
+            int exponent = (row >>> (col << 2)) & 0xF;
+            if (exponent == 0)
+                continue;
+            if (exponent == pending && exponent < MAX_EXPONENT) {
+                result |= (exponent + 1) << (out << 2);
+                out++;
+                pending = 0;
+            } else {
+                if (pending != 0) {
+                    result |= pending << (out << 2);
+                    out++;
+                }
+                pending = exponent;
+            }
+        }
+        if (pending != 0)
+            result |= pending << (out << 2);
+        return result;
+    }
+
+    /**
+     * The rowScore method returns the score of the merges made when one 16 bit row slides.
+     * It is only used to build the row tables.
+     * @param row The row, four nibbles with column 0 in the lowest nibble.
+     * @return Sum of the tiles created by merging.
+     */
+    static int rowScore(int row) {
+        int score = 0;
+        int pending = 0;        // last tile that is still allowed to merge
+
+        for (int col = 0; col < SIZE; col++) {
+            int exponent = (row >>> (col << 2)) & 0xF;
+            if (exponent == 0)
+                continue;
+            if (exponent == pending && exponent < MAX_EXPONENT) {
+                score += 1 << (exponent + 1);
+                pending = 0;
+            } else {
+                pending = exponent;
+            }
+        }
+        return score;
+    }
+
+    /**
+     * The reverseRow method mirrors a 16 bit row, column 0 swaps with column 3 and
+     * column 1 with column 2.
+     * @param row The row to mirror.
+     * @return The mirrored row.
+     */
+    static int reverseRow(int row) {
+        return ((row & 0xF) << 12) | ((row & 0xF0) << 4) | ((row >>> 4) & 0xF0) | ((row >>> 12) & 0xF);
+    }
+}
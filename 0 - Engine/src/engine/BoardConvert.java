@@ -0,0 +1,116 @@
+package engine;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * The BoardConvert program converts board files between the text format of 2048_in.txt and the
+ * binary format of BoardFile. The format of the input is found from its first bytes:
+ * - a text file is converted to a binary file. With "-results FILE", the results of FILE (in the
+ *   2048_out.txt format, one line per board) are stored in the results block of the binary file.
+ * - a binary file is converted to a text file. With "-results FILE", the results of its results
+ *   block are written to FILE in the 2048_out.txt format.
+ * For example: java -cp out engine.BoardConvert 2048_in.txt 2048_in.bin -results 2048_out.txt
+ */
+public final class BoardConvert {
+
+    private BoardConvert() {
+    }
+
+    /**
+     * Converts the file of the first argument into the file of the second argument.
+     *
+     * @param args The input file, the output file and optionally "-results FILE".
+     * @throws IOException if a file cannot be read or written.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2 && !(args.length == 4 && args[2].equals("-results"))) {
+            System.out.println("Usage: BoardConvert INPUT OUTPUT [-results RESULTS]");
+            return;
+        }
+        Path input = Paths.get(args[0]);
+        Path output = Paths.get(args[1]);
+        Path results = args.length == 4 ? Paths.get(args[3]) : null;
+
+        long start = System.nanoTime();
+        long boards = BoardFile.isBinary(input) ? toText(input, output, results) : toBinary(input, output, results);
+        System.out.println(String.format("Converted %,d boards in %.1f ms: %,d bytes to %,d bytes",
+                boards, (System.nanoTime() - start) / 1e6, Files.size(input), Files.size(output)));
+    }
+
+    /**
+     * The toBinary method converts a text board file into a binary board file.
+     * @param input The text board file.
+     * @param output The binary board file to write.
+     * @param results The results of the boards in the 2048_out.txt format, or null for none.
+     * @return The number of boards converted.
+     * @throws IOException if a file cannot be read or written, or there are fewer results than
+     * boards.
+     */
+    public static long toBinary(Path input, Path output, Path results) throws IOException {
+        try (BoardReader boards = BoardReader.open(input);
+             BufferedReader lines = results == null ? null : Files.newBufferedReader(results, StandardCharsets.US_ASCII);
+             BinaryBoardWriter writer = BinaryBoardWriter.create(output, boards.count(), results != null)) {
+            for (long index = 1; boards.hasNext(); index++) {
+                long board = boards.next();
+                if (lines == null) {
+                    writer.write(board);
+                    continue;
+                }
+                String line = lines.readLine();
+                if (line == null)
+                    throw new IOException("The results end before board " + index);
+                int comma = line.indexOf(',');
+                if (comma < 0)
+                    throw new IOException("Not a result line: " + line);
+                StringBuilder letters = new StringBuilder();
+                for (int i = comma + 1; i < line.length(); i++) {
+                    if (line.charAt(i) != ',')
+                        letters.append(line.charAt(i));
+                }
+                writer.write(board, Integer.parseInt(line.substring(0, comma).trim()), letters);
+            }
+            return boards.count();
+        }
+    }
+
+    /**
+     * The toText method converts a binary board file into a text board file.
+     * @param input The binary board file.
+     * @param output The text board file to write, in the 2048_in.txt format.
+     * @param results The file to write the results to in the 2048_out.txt format, or null.
+     * @return The number of boards converted.
+     * @throws IOException if a file cannot be read or written, or results are asked from a file
+     * without results.
+     */
+    public static long toText(Path input, Path output, Path results) throws IOException {
+        try (BinaryBoardReader boards = BinaryBoardReader.open(input)) {
+            if (results != null && !boards.hasResults())
+                throw new IOException(input + " has no results");
+            try (BufferedWriter text = Files.newBufferedWriter(output, StandardCharsets.US_ASCII);
+                 ResultWriter resultWriter = results == null ? null : ResultWriter.create(results)) {
+                // like 2048_in.txt: the number of boards, then 4 lines per board, no line break at the end
+                text.write(Long.toString(boards.count()));
+                while (boards.hasNext()) {
+                    long board = boards.next();
+                    for (int row = 0; row < Bitboard.SIZE; row++) {
+                        text.write('\n');
+                        for (int col = 0; col < Bitboard.SIZE; col++) {
+                            if (col > 0)
+                                text.write(',');
+                            text.write(Integer.toString(Bitboard.getTile(board, row, col)));
+                        }
+                    }
+                    if (resultWriter != null)
+                        resultWriter.write(boards.result());
+                }
+            }
+            return boards.count();
+        }
+    }
+}
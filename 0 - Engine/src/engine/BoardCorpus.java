@@ -0,0 +1,64 @@
+package engine;
+
+/**
+ * The BoardCorpus class holds a fixed set of boards used to measure the engine, so every
+ * measurement of the search runs on the same positions. It starts with the five boards of
+ * the BFS milestone input file (2048_in.txt), followed by mid game and late game boards
+ * that have fewer empty cells and bigger tiles.
+ */
+public final class BoardCorpus {
+
+    // the boards of 2048_in.txt, in the order of the file
+    private static final int[][][] INPUT_BOARDS = {
+            {{2, 4, 4, 0}, {16, 0, 0, 0}, {4, 8, 0, 0}, {2, 8, 0, 0}},
+            {{2, 2, 0, 0}, {0, 4, 16, 4}, {0, 0, 0, 2}, {8, 32, 32, 0}},
+            {{0, 0, 0, 4}, {0, 2, 32, 0}, {16, 0, 8, 0}, {2, 0, 4, 4}},
+            {{0, 0, 0, 0}, {8, 2, 2, 4}, {256, 256, 0, 0}, {4, 0, 0, 0}},
+            {{1024, 0, 0, 0}, {0, 0, 0, 0}, {0, 0, 0, 1024}, {0, 0, 0, 0}},
+    };
+
+    // mid game and late game boards
+    private static final int[][][] GAME_BOARDS = {
+            {{2, 4, 8, 16}, {0, 2, 4, 8}, {0, 0, 2, 4}, {0, 0, 0, 2}},
+            {{128, 64, 32, 16}, {4, 8, 16, 8}, {2, 0, 4, 2}, {0, 0, 0, 2}},
+            {{512, 256, 128, 64}, {8, 16, 32, 4}, {2, 4, 0, 0}, {0, 2, 0, 0}},
+            {{1024, 512, 64, 8}, {16, 128, 32, 4}, {4, 8, 2, 0}, {2, 0, 0, 0}},
+            {{2, 1024, 4, 2}, {128, 512, 16, 128}, {16, 8, 128, 8}, {4, 2, 0, 0}},
+    };
+
+    private BoardCorpus() {
+    }
+
+    /**
+     * The inputBoards method returns the packed boards of 2048_in.txt.
+     * @return A new array of packed boards.
+     */
+    public static long[] inputBoards() {
+        return packAll(INPUT_BOARDS);
+    }
+
+    /**
+     * The boards method returns every board of the corpus, the input boards first.
+     * @return A new array of packed boards.
+     */
+    public static long[] boards() {
+        long[] input = packAll(INPUT_BOARDS);
+        long[] game = packAll(GAME_BOARDS);
+        long[] all = new long[input.length + game.length];
+        System.arraycopy(input, 0, all, 0, input.length);
+        System.arraycopy(game, 0, all, input.length, game.length);
+        return all;
+    }
+
+    /**
+     * The packAll method packs a list of boards.
+     * @param boards The boards as 2D arrays of tile values.
+     * @return The packed boards.
+     */
+    private static long[] packAll(int[][][] boards) {
+        long[] packed = new long[boards.length];
+        for (int i = 0; i < boards.length; i++)
+            packed[i] = Bitboard.pack(boards[i]);
+        return packed;
+    }
+}
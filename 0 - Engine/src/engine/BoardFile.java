@@ -0,0 +1,81 @@
+package engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The BoardFile class describes the binary board format and opens board files of either format.
+ * A binary board file is about 10 times smaller than the text format of 2048_in.txt and its
+ * boards are read without parsing. All numbers are big endian:
+ * - a header of 16 bytes: the magic number "2048" in ASCII, the version (2 bytes), the flags
+ *   (2 bytes, RESULTS if the file has a results block) and the number of boards N (8 bytes);
+ * - N records of 8 bytes, one packed board each, in the nibble layout of Bitboard;
+ * - if the file has results, N records of 16 bytes, one per board in the same order: the maximum
+ *   score (4 bytes), the number of moves of its path (4 bytes) and the path (8 bytes, 2 bits per
+ *   move, the first move in the highest bits, as in LookaheadBfs.Result).
+ */
+public final class BoardFile {
+
+    // "2048" in ASCII, the first 4 bytes of every binary board file
+    public static final int MAGIC = 0x32303438;
+
+    // the version of the format written by BinaryBoardWriter
+    public static final short VERSION = 1;
+
+    // the flag of a file that has a results block
+    public static final short RESULTS = 0x1;
+
+    // bytes of the header, of a board record and of a result record
+    public static final int HEADER_BYTES = 16;
+    public static final int BOARD_BYTES = 8;
+    public static final int RESULT_BYTES = 16;
+
+    private BoardFile() {
+    }
+
+    /**
+     * The isBinary method tells if a file starts with the magic number of the binary format.
+     * @param file The board file.
+     * @return true for a binary board file, false for a text file.
+     * @throws IOException if the file cannot be read.
+     */
+    public static boolean isBinary(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(4);
+            while (magic.hasRemaining() && channel.read(magic) >= 0) {
+                // read until the 4 bytes are in or the file ends
+            }
+            return !magic.hasRemaining() && magic.getInt(0) == MAGIC;
+        }
+    }
+
+    /**
+     * The open method opens a board file of either format.
+     * @param file A binary board file or a text file in the 2048_in.txt format.
+     * @return A BinaryBoardReader or a BoardReader, positioned on the first board.
+     * @throws IOException if the file cannot be opened or its header is not valid.
+     */
+    public static BoardSource open(Path file) throws IOException {
+        return isBinary(file) ? BinaryBoardReader.open(file) : BoardReader.open(file);
+    }
+
+    /**
+     * The readAll method reads every board of a board file of either format.
+     * @param file A binary board file or a text file in the 2048_in.txt format.
+     * @return The packed boards in the order of the file.
+     * @throws IOException if the file cannot be read or holds more boards than an array.
+     */
+    public static long[] readAll(Path file) throws IOException {
+        try (BoardSource boards = open(file)) {
+            if (boards.count() > Integer.MAX_VALUE - 8)
+                throw new IOException("Too many boards to hold in memory: " + boards.count());
+            long[] all = new long[(int) boards.count()];
+            for (int i = 0; i < all.length; i++)
+                all[i] = boards.next();
+            return all;
+        }
+    }
+}
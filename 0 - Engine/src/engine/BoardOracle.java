@@ -0,0 +1,548 @@
+package engine;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * The BoardOracle class keeps the original hand-unrolled 2048 rule cascades of the milestones,
+ * working on 4by4 int boards, as the reference implementation of the game rules. Running it
+ * proves that Bitboard makes exactly the same moves and scores: every possible row (and column)
+ * is checked in all four directions, then a large number of random boards are checked as well,
+ * and full boards, where the game is often over. On every board the moves of legalMoves must be
+ * the moves that change the board, and isTerminal must agree with isMovesAvailable.
+ * Rows holding a 32768 tile are skipped, the packed board cannot hold the 65536 tile the int
+ * board would create when two of them merge.
+ */
+public final class BoardOracle {
+
+    // number of random boards checked after the exhaustive row check, and of full boards
+    private static final int RANDOM_BOARDS = 1_000_000;
+    private static final int FULL_BOARDS = 200_000;
+
+    private BoardOracle() {
+    }
+
+    /**
+     * Checks Bitboard against the reference cascades and prints the result.
+     *
+     * @param args A string array containing the command line arguments.
+     */
+    public static void main(String[] args) {
+
+        int mismatches = 0;
+        long checked = 0;
+
+        // every row: the same 16 bit line is placed in all four rows, and the transposed
+        // board puts it in all four columns, so all positions of the packed board are used
+        for (int line = 0; line <= 0xFFFF; line++) {
+            if (hasMaxExponent(line))
+                continue;
+            long board = 0;
+            for (int row = 0; row < Bitboard.SIZE; row++)
+                board |= (long) line << (row << 4);
+
+            mismatches += check(board);
+            mismatches += check(Bitboard.transpose(board));
+            checked += 2;
+        }
+
+        // random boards with a mix of tiles in every row and column
+        Random rand = new Random(2048);
+        for (int i = 0; i < RANDOM_BOARDS; i++) {
+            long board = 0;
+            for (int index = 0; index < Bitboard.SIZE * Bitboard.SIZE; index++)
+                board = Bitboard.setExponent(board, index, rand.nextInt(Bitboard.MAX_EXPONENT));
+            mismatches += check(board);
+            checked++;
+        }
+
+        // full boards, without a 32768 tile, so only merges can make a move
+        int terminal = 0;
+        for (int i = 0; i < FULL_BOARDS; i++) {
+            long board = 0;
+            for (int index = 0; index < Bitboard.SIZE * Bitboard.SIZE; index++)
+                board = Bitboard.setExponent(board, index, 1 + rand.nextInt(Bitboard.MAX_EXPONENT - 1));
+            mismatches += check(board);
+            checked++;
+            if (Bitboard.isTerminal(board))
+                terminal++;
+        }
+
+        System.out.println("Boards checked: " + checked + " (" + terminal + " where the game is over), moves checked: "
+                + checked * 4);
+        System.out.println(mismatches == 0 ? "Bitboard matches the reference rules."
+                : "Mismatches found: " + mismatches);
+        if (mismatches != 0)
+            System.exit(1);
+    }
+
+    /**
+     * The check method plays all four moves on one board with both implementations
+     * and compares the boards, the scores and the empty cell and max tile counts, and if
+     * legalMoves holds the move exactly when the reference move changes the board. The end
+     * of the game found by isTerminal is compared with isMovesAvailable.
+     * @param board The packed board to check.
+     * @return Number of moves where the two implementations differ, plus one if they do not
+     *         agree on the end of the game.
+     */
+    private static int check(long board) {
+        int mismatches = 0;
+        int[][] original = Bitboard.unpack(board);
+        int legal = Bitboard.legalMoves(board);
+
+        for (int move = 0; move < 4; move++) {
+            int[][] tempBoard = deepCopy2DArray(original);
+            int score = reference(tempBoard, move);
+            boolean changed = !Arrays.deepEquals(tempBoard, original);
+
+            long moved = Bitboard.move(board, move);
+            if (Bitboard.pack(tempBoard) != moved || Bitboard.moveScore(board, move) != score
+                    || Bitboard.countEmpty(moved) != countEmpty(tempBoard)
+                    || Bitboard.maxTile(moved) != maxTile(tempBoard)
+                    || ((legal & (1 << move)) != 0) != changed) {
+                if (mismatches == 0)
+                    System.out.println("Mismatch on board " + Long.toHexString(board)
+                            + " move " + Bitboard.MOVE_LETTERS[move]);
+                mismatches++;
+            }
+        }
+        if (Bitboard.isTerminal(board) == isMovesAvailable(original)) {
+            System.out.println("Mismatch on board " + Long.toHexString(board) + ": isTerminal is "
+                    + Bitboard.isTerminal(board));
+            mismatches++;
+        }
+        return mismatches;
+    }
+
+    /**
+     * The reference method calls the reference cascade of one move.
+     * @param board The 4by4 board which needs to move.
+     * @param move LEFT, RIGHT, UP or DOWN.
+     * @return score of the merges made by the move
+     */
+    public static int reference(int[][] board, int move) {
+        if (move == Bitboard.LEFT)
+            return moveLeft(board);
+        else if (move == Bitboard.RIGHT)
+            return moveRight(board);
+        else if (move == Bitboard.UP)
+            return moveUp(board);
+        else
+            return moveDown(board);
+    }
+
+    /**
+     * The isMovesAvailable method checks the board to see if any of 4 possible moves
+     * changes it, the way the int board milestones did: every move is played on a deep
+     * copy, which is compared with the board. The board itself is not changed.
+     * @param board to check
+     * @return true if any moves available
+     */
+    public static boolean isMovesAvailable(int[][] board) {
+        for (int move = 0; move < 4; move++) {
+            int[][] copy = deepCopy2DArray(board);
+            reference(copy, move);
+            if (!Arrays.deepEquals(copy, board))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * The hasMaxExponent method checks if a 16 bit row holds a 32768 tile.
+     * @param line The row to check.
+     * @return true if any nibble is 15.
+     */
+    private static boolean hasMaxExponent(int line) {
+        for (int col = 0; col < Bitboard.SIZE; col++) {
+            if (((line >>> (col << 2)) & 0xF) == Bitboard.MAX_EXPONENT)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * The countEmpty method counts the empty cells of a 4by4 board.
+     * @param board The board to check.
+     * @return Number of empty cells.
+     */
+    private static int countEmpty(int[][] board) {
+        int emptyCellCounter = 0;
+        for (int i = 0; i < 4; i++){
+            for (int j = 0; j < 4; j++){
+                if (board[i][j] == 0)
+                    emptyCellCounter++;
+            }
+        }
+        return emptyCellCounter;
+    }
+
+    /**
+     * The maxTile method finds the largest tile of a 4by4 board.
+     * @param board The board to check.
+     * @return The largest tile value.
+     */
+    private static int maxTile(int[][] board) {
+        int max = 0;
+        for (int row = 0; row < 4; row++){
+            for (int col = 0; col < 4; col++){
+                if (board[row][col] > max)
+                    max = board[row][col];
+            }
+        }
+        return max;
+    }
+
+    /**
+     * The moveUp methods have all 2048 game rules for the action move up.
+     * @param board The 4by4 board which needs to move up.
+     * @return score of the merges made by moving up
+     */
+    public static int moveUp(int[][] board){
+        int sum;            // holds sum after each possible move
+        int score = 0;
+
+        for (int col = 0; col < 4; col++){
+            int row = 0;
+            if (board[row][col] == board[row+1][col] && board[row+2][col] == board[row+3][col]){
+                sum = board[row][col] + board[row+1][col];
+                score += sum;
+                board[row][col] = sum;
+                sum = board[row+2][col] + board[row+3][col];
+                score += sum;
+                board[row+1][col] = sum;
+                board[row+2][col] = 0;
+                board[row+3][col] = 0;
+            }
+            else if (board[row][col] == board[row+1][col]) {
+                sum = board[row][col] + board[row+1][col];
+                score += sum;
+                board[row][col] = sum;
+                board[row+1][col] = board[row+2][col];
+                board[row+2][col] = board[row+3][col];
+                board[row+3][col] = 0;
+            }
+            else if (board[row][col] == board[row+2][col] && board[row+1][col]==0){
+                sum = board[row][col] + board[row+2][col];
+                score += sum;
+                board[row][col] = sum;
+                board[row+1][col] = board[row+3][col];
+                board[row+2][col] = 0;
+                board[row+3][col] = 0;
+            }
+            else if (board[row][col] == board[row+3][col] && board[row+1][col]==0 && board[row+2][col]==0){
+                sum = board[row][col] + board[row+3][col];
+                score += sum;
+                board[row][col] = sum;
+                board[row+3][col] = 0;
+            }
+            else if (board[row+1][col] == board[row+2][col]){
+                sum = board[row+1][col] + board[row+2][col];
+                score += sum;
+                board[row+1][col] = sum;
+                board[row+2][col] = board[row+3][col];
+                board[row+3][col] = 0;
+            }
+            else if (board[row+1][col] == board[row+3][col] && board[row+2][col]==0){
+                sum = board[row+1][col] + board[row+3][col];
+                score += sum;
+                board[row+1][col] = sum;
+                board[row+3][col] = 0;
+            }
+            else if (board[row+2][col] == board[row+3][col]){
+                sum = board[row+2][col] + board[row+3][col];
+                score += sum;
+                board[row+2][col] = sum;
+                board[row+3][col] = 0;
+            }
+
+            if (board[row+2][col] == 0){
+                board[row+2][col] = board[row+3][col];
+                board[row+3][col] = 0;
+            }
+            if (board[row+1][col] == 0){
+                board[row+1][col] = board[row+2][col];
+                board[row+2][col] = board[row+3][col];
+                board[row+3][col] = 0;
+            }
+            if (board[row][col] == 0) {
+                board[row][col] = board[row+1][col];
+                board[row+1][col] = board[row+2][col];
+                board[row+2][col] = board[row+3][col];
+                board[row+3][col] = 0;
+            }
+        }
+
+        return score;
+    }
+
+    /**
+     * The moveDown methods have all 2048 game rules for the action move down.
+     * @param board The 4by4 board which needs to move down.
+     * @return score of the merges made by moving down
+     */
+    public static int moveDown(int[][] board){
+        int sum;            // holds sum after each possible move
+        int score = 0;
+
+        for (int col = 0; col < 4; col++){
+            int row = 0;
+
+            if (board[row+3][col] == board[row+2][col] && board[row+1][col] == board[row][col]){
+                sum = board[row+3][col] + board[row+2][col];
+                score += sum;
+                board[row+3][col] = sum;
+                sum = board[row][col] + board[row+1][col];
+                score += sum;
+                board[row+2][col] = sum;
+                board[row+1][col] = 0;
+                board[row][col] = 0;
+            }
+            else if (board[row+3][col] == board[row+2][col]) {
+                sum = board[row+3][col] + board[row+2][col];
+                score += sum;
+                board[row+3][col] = sum;
+                board[row+2][col] = board[row+1][col];
+                board[row+1][col] = board[row][col];
+                board[row][col] = 0;
+            }
+
+            else if (board[row+3][col] == board[row+1][col] && board[row+2][col]==0){
+                sum = board[row+3][col] + board[row+1][col];
+                score += sum;
+                board[row+3][col] = sum;
+                board[row+2][col] = board[row][col];
+                board[row+1][col] = 0;
+                board[row][col] = 0;
+            }
+            else if (board[row+3][col] == board[row][col] && board[row+2][col]==0 && board[row+1][col]==0){
+                sum = board[row+3][col] + board[row][col];
+                score += sum;
+                board[row+3][col] = sum;
+                board[row][col] = 0;
+            }
+
+            else if (board[row+2][col] == board[row+1][col]){
+                sum = board[row+2][col] + board[row+1][col];
+                score += sum;
+                board[row+2][col] = sum;
+                board[row+1][col] = board[row][col];
+                board[row][col] = 0;
+            }
+            else if (board[row+2][col] == board[row][col] && board[row+1][col]==0){
+                sum = board[row+2][col] + board[row][col];
+                score += sum;
+                board[row+2][col] = sum;
+                board[row][col] = 0;
+            }
+            else if (board[row+1][col] == board[row][col]){
+                sum = board[row+1][col] + board[row][col];
+                score += sum;
+                board[row+1][col] = sum;
+                board[row][col] = 0;
+            }
+
+            if (board[row+1][col] == 0){
+                board[row+1][col] = board[row][col];
+                board[row][col] = 0;
+            }
+            if (board[row+2][col] == 0){
+                board[row+2][col] = board[row+1][col];
+                board[row+1][col] = board[row][col];
+                board[row][col] = 0;
+            }
+            if (board[row+3][col] == 0) {
+                board[row+3][col] = board[row+2][col];
+                board[row+2][col] = board[row+1][col];
+                board[row+1][col] = board[row][col];
+                board[row][col] = 0;
+            }
+        }
+
+        return score;
+    }
+
+    /**
+     * The moveRight methods have all 2048 game rules for the action move right.
+     * @param board The 4by4 board which needs to move right.
+     * @return score of the merges made by moving right
+     */
+    public static int moveRight(int[][] board){
+
+        int sum;                // holds sum after each possible move
+        int score = 0;
+
+        for (int row = 0; row < 4; row++){
+            int col = 0;
+            if (board[row][col+3] == board[row][col+2] && board[row][col+1] == board[row][col]){
+                sum = board[row][col+3] + board[row][col+2];
+                score += sum;
+                board[row][col+3] = sum;
+                sum = board[row][col] + board[row][col+1];
+                score += sum;
+                board[row][col+2] = sum;
+                board[row][col+1] = 0;
+                board[row][col] = 0;
+            }
+            else if (board[row][col+3] == board[row][col+2]) {
+                sum = board[row][col+3] + board[row][col+2];
+                score += sum;
+                board[row][col+3] = sum;
+                board[row][col+2] = board[row][col+1];
+                board[row][col+1] = board[row][col];
+                board[row][col] = 0;
+            }
+            else if (board[row][col+3] == board[row][col+1] && board[row][col+2]==0){
+                sum = board[row][col+3] + board[row][col+1];
+                score += sum;
+                board[row][col+3] = sum;
+                board[row][col+2]= board[row][col];
+                board[row][col+1] = 0;
+                board[row][col] = 0;
+            }
+            else if (board[row][col+3] == board[row][col] && board[row][col+2]==0 && board[row][col+1]==0){
+                sum = board[row][col+3] + board[row][col];
+                score += sum;
+                board[row][col+3] = sum;
+                board[row][col] = 0;
+            }
+            else if (board[row][col+2] == board[row][col+1]){
+                sum = board[row][col+2] + board[row][col+1];
+                score += sum;
+                board[row][col+2] = sum;
+                board[row][col+1] = board[row][col];
+                board[row][col] = 0;
+            }
+            else if (board[row][col+2] == board[row][col] && board[row][col+1]==0){
+                sum = board[row][col+2] + board[row][col];
+                score += sum;
+                board[row][col+2] = sum;
+                board[row][col] = 0;
+            }
+            else if (board[row][col+1] == board[row][col]){
+                sum = board[row][col+1] + board[row][col];
+                score += sum;
+                board[row][col+1] = sum;
+                board[row][col] = 0;
+            }
+            if (board[row][col+1] == 0){
+                board[row][col+1] = board[row][col];
+                board[row][col] = 0;
+            }
+            if (board[row][col+2] == 0){
+                board[row][col+2] = board[row][col+1];
+                board[row][col+1] = board[row][col];
+                board[row][col] = 0;
+            }
+            if (board[row][col+3] == 0) {
+                board[row][col+3] = board[row][col+2];
+                board[row][col+2] = board[row][col+1];
+                board[row][col+1] = board[row][col];
+                board[row][col] = 0;
+            }
+        }
+
+        return score;
+    }
+
+    /**
+     * The moveLeft methods have all 2048 game rules for the action move left.
+     * @param board The 4by4 board which needs to move left.
+     * @return score of the merges made by moving left
+     */
+    public static int moveLeft(int[][] board){
+        int sum;            // holds sum after each possible move
+        int score = 0;
+
+        for (int row = 0; row < 4; row++){
+            int col = 0;
+            if (board[row][col] == board[row][col+1] && board[row][col+2] == board[row][col+3]){
+                sum = board[row][col] + board[row][col+1];
+                score += sum;
+                board[row][col] = sum;
+                sum = board[row][col+2] + board[row][col+3];
+                score += sum;
+                board[row][col+1] = sum;
+                board[row][col+2] = 0;
+                board[row][col+3] = 0;
+            }
+            else if (board[row][col] == board[row][col+1]) {
+                sum = board[row][col] + board[row][col+1];
+                score += sum;
+                board[row][col] = sum;
+                board[row][col+1] = board[row][col+2];
+                board[row][col+2] = board[row][col+3];
+                board[row][col+3] = 0;
+            }
+            else if (board[row][col] == board[row][col+2] && board[row][col+1]==0){
+                sum = board[row][col] + board[row][col+2];
+                score += sum;
+                board[row][col] = sum;
+                board[row][col+1] = board[row][col+3];
+                board[row][col+2] = 0;
+                board[row][col+3] = 0;
+            }
+            else if (board[row][col] == board[row][col+3] && board[row][col+1]==0 && board[row][col+2]==0){
+                sum = board[row][col] + board[row][col+3];
+                score += sum;
+                board[row][col] = sum;
+                board[row][col+3] = 0;
+            }
+            else if (board[row][col+1] == board[row][col+2]){
+                sum = board[row][col+1] + board[row][col+2];
+                score += sum;
+                board[row][col+1] = sum;
+                board[row][col+2] = board[row][col+3];
+                board[row][col+3] = 0;
+            }
+            else if (board[row][col+1] == board[row][col+3] && board[row][col+2]==0){
+                sum = board[row][col+1] + board[row][col+3];
+                score += sum;
+                board[row][col+1] = sum;
+                board[row][col+3] = 0;
+            }
+            else if (board[row][col+2] == board[row][col+3]){
+                sum = board[row][col+2] + board[row][col+3];
+                score += sum;
+                board[row][col+2] = sum;
+                board[row][col+3] = 0;
+            }
+
+            if (board[row][col+2] == 0){
+                board[row][col+2] = board[row][col+3];
+                board[row][col+3] = 0;
+            }
+            if (board[row][col+1] == 0){
+                board[row][col+1] = board[row][col+2];
+                board[row][col+2] = board[row][col+3];
+                board[row][col+3] = 0;
+            }
+            if (board[row][col] == 0) {
+                board[row][col] = board[row][col+1];
+                board[row][col+1] = board[row][col+2];
+                board[row][col+2] = board[row][col+3];
+                board[row][col+3] = 0;
+            }
+        }
+
+        return score;
+    }
+
+    /**
+     * The deepCopy2DArray gets a deep copy from the original passed array.
+     * This method helps to find all possible boards after all possible moves
+     * without changing the original board.
+     * @param original The board that should be copied.
+     * @return Copy of the board.
+     */
+    public static int[][] deepCopy2DArray(int[][] original) {
+        final int SIZE = 4;
+        int[][] newArray = new int[SIZE][SIZE];
+
+        for (int i = 0; i < SIZE; i++) {
+            for (int j = 0; j < SIZE; j++)
+                newArray[i][j] = original[i][j];
+        }
+        return newArray;
+    }
+}
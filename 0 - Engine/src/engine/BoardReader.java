@@ -0,0 +1,161 @@
+package engine;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The BoardReader class streams the boards of a file in the 2048_in.txt format: the number of
+ * test cases N on the first line, then 4 lines of 4 comma separated tile values for every test
+ * case, 0 for an empty cell.
+ * The file is read through one channel into a fixed byte buffer and the numbers are parsed from
+ * the bytes directly, so only one board is held at a time and files with millions of boards are
+ * read without building lines or strings. Any run of commas, spaces, tabs and line breaks
+ * separates two numbers.
+ */
+public final class BoardReader implements BoardSource {
+
+    // bytes read from the channel at a time
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final ReadableByteChannel channel;
+    private final byte[] bytes = new byte[BUFFER_SIZE];
+    private final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+
+    // the next byte to parse and the end of the bytes read into the buffer
+    private int position;
+    private int limit;
+
+    // number of boards announced on the first line, and number read so far
+    private final long count;
+    private long read;
+
+    /**
+     * Creates a reader over a channel and reads the number of test cases.
+     * @param channel The channel of the file, closed with the reader.
+     * @throws IOException if the channel fails or does not start with the number of test cases.
+     */
+    public BoardReader(ReadableByteChannel channel) throws IOException {
+        this.channel = channel;
+        count = readNumber();
+        if (count < 0)
+            throw new EOFException("The board file is empty");
+    }
+
+    /**
+     * The open method opens a board file for reading.
+     * @param file The file in the 2048_in.txt format.
+     * @return A reader positioned on the first board.
+     * @throws IOException if the file cannot be opened or its first line is not a number.
+     */
+    public static BoardReader open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            return new BoardReader(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * The count method returns the number of test cases on the first line of the file.
+     * @return The number of boards of the file.
+     */
+    @Override
+    public long count() {
+        return count;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return read < count;
+    }
+
+    /**
+     * The next method reads the next board.
+     * @return The packed board.
+     * @throws EOFException if the file ends before the board does.
+     * @throws IOException if the channel fails or a value is not a tile value.
+     */
+    @Override
+    public long next() throws IOException {
+        if (!hasNext())
+            throw new EOFException("All " + count + " boards were read");
+        long board = Bitboard.EMPTY_BOARD;
+        for (int index = 0; index < 16; index++) {
+            long value = readNumber();
+            if (value < 0)
+                throw new EOFException("The file ends in board " + (read + 1) + " of " + count);
+            try {
+                if (value > 1 << Bitboard.MAX_EXPONENT)
+                    throw new IllegalArgumentException("Not a valid tile value: " + value);
+                board = Bitboard.setExponent(board, index, Bitboard.exponentOf((int) value));
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Board " + (read + 1) + ": " + e.getMessage(), e);
+            }
+        }
+        read++;
+        return board;
+    }
+
+    /**
+     * The readNumber method skips the separators and parses the digits of the next number.
+     * @return The number, or -1 at the end of the file.
+     * @throws IOException if the channel fails, a byte is not a digit or a separator, or the
+     * number has more than 10 digits.
+     */
+    private long readNumber() throws IOException {
+        int b;
+        do {
+            b = readByte();
+            if (b < 0)
+                return -1;
+        } while (isSeparator(b));
+
+        long number = 0;
+        int digits = 0;
+        while (b >= '0' && b <= '9') {
+            if (++digits > 10)
+                throw new IOException("Number too long in board " + (read + 1));
+            number = number * 10 + (b - '0');
+            b = readByte();
+        }
+        if (b >= 0 && !isSeparator(b))
+            throw new IOException("Unexpected character '" + (char) b + "' in board " + (read + 1));
+        return number;
+    }
+
+    /**
+     * The readByte method returns the next byte, refilling the buffer from the channel.
+     * @return The byte, or -1 at the end of the file.
+     * @throws IOException if the channel fails.
+     */
+    private int readByte() throws IOException {
+        if (position == limit) {
+            buffer.clear();
+            int n;
+            do {
+                n = channel.read(buffer);
+            } while (n == 0);
+            if (n < 0)
+                return -1;
+            position = 0;
+            limit = n;
+        }
+        return bytes[position++] & 0xFF;
+    }
+
+    private static boolean isSeparator(int b) {
+        return b == ',' || b == '\n' || b == '\r' || b == ' ' || b == '\t';
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,31 @@
+package engine;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * The BoardSource interface streams the boards of a board file one at a time, whatever its
+ * format. BoardReader reads the text format of 2048_in.txt and BinaryBoardReader the binary
+ * format of BoardFile; BoardFile.open picks the right one for a file.
+ */
+public interface BoardSource extends Closeable {
+
+    /**
+     * The count method returns the number of boards announced by the header of the file.
+     * @return The number of boards of the file.
+     */
+    long count();
+
+    /**
+     * The hasNext method tells if the file has boards left.
+     * @return true until count boards have been read.
+     */
+    boolean hasNext();
+
+    /**
+     * The next method reads the next board.
+     * @return The packed board.
+     * @throws IOException if the file fails, ends early or holds a board that is not valid.
+     */
+    long next() throws IOException;
+}
@@ -0,0 +1,67 @@
+package engine;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The BookStrategy class plays the move of an OpeningBook while the board is in the book, and
+ * asks another strategy, usually a SearchStrategy, for every other move. The moves taken from the
+ * book and the moves left to the other strategy are counted; the counters are shared by all the
+ * games played with the strategy.
+ */
+public final class BookStrategy implements Strategy {
+
+    // holds the solved boards of the first moves
+    private final OpeningBook book;
+
+    // chooses the moves of the boards that are not in the book
+    private final Strategy fallback;
+
+    // holds the number of moves found in the book and the number left to the fallback
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Creates a strategy.
+     * @param book The opening book.
+     * @param fallback Chooses the moves of the boards that are not in the book.
+     */
+    public BookStrategy(OpeningBook book, Strategy fallback) {
+        this.book = book;
+        this.fallback = fallback;
+    }
+
+    @Override
+    public int chooseMove(GameSession session) {
+        int move = book.lookup(session.board());
+        if (move != OpeningBook.NOT_FOUND) {
+            hits.increment();
+            return move;
+        }
+        misses.increment();
+        return fallback.chooseMove(session);
+    }
+
+    /**
+     * The hits method returns the number of moves played from the book.
+     * @return Number of moves found in the book.
+     */
+    public long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * The misses method returns the number of moves left to the fallback strategy.
+     * @return Number of moves not found in the book.
+     */
+    public long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * The summary method returns the book and its counters as one line of text.
+     * @return The book, the moves played from it and the moves searched.
+     */
+    public String summary() {
+        return String.format("%s, %d moves played from the book, %d searched", book.summary(), hits(), misses());
+    }
+}
@@ -0,0 +1,22 @@
+package engine;
+
+/**
+ * The Evaluator interface scores the leaves of the search. A leaf is the board after the last
+ * move of the search, together with the score of the merges made by that move.
+ */
+public interface Evaluator {
+
+    // the original minimax leaf: the score of the last move
+    Evaluator MERGE_SCORE = (board, moveScore) -> moveScore;
+
+    // the heuristic improvement leaf: the number of empty cells after the last move
+    Evaluator EMPTY_CELLS = (board, moveScore) -> Bitboard.countEmpty(board);
+
+    /**
+     * The evaluate method scores one leaf of the search.
+     * @param board The packed board after the last move.
+     * @param moveScore The score of the merges made by the last move.
+     * @return The value of the leaf, larger is better for the player.
+     */
+    double evaluate(long board, int moveScore);
+}
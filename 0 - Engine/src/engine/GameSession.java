@@ -0,0 +1,205 @@
+package engine;
+
+import java.util.SplittableRandom;
+
+/**
+ * The GameSession class holds everything one game of 2048 changes while it is played: the packed
+ * board, the score, the path of moves and the random generator that places the new tiles. Nothing
+ * is shared between sessions, so many games can be played at the same time in one program, each
+ * on its own thread. A single session is not meant to be used by two threads at once.
+ * Every session has its own seeded SplittableRandom, so a game played again from the same seed
+ * with the same strategy gets exactly the same tiles, which makes games replayable for debugging
+ * and self-play batches repeatable.
+ * A new game starts with two 2 at random locations. After every move that changes the board a 2
+ * or a 4 (equally likely) is added at a random empty location, and the game ends when no move
+ * changes the board or when 2048 is on the board.
+ */
+public final class GameSession {
+
+    // the tile that wins the game
+    public static final int WINNING_TILE = 2048;
+
+    // holds the packed board of the game
+    private long board;
+
+    // holds the current score in the game
+    private int score;
+
+    // holds the letters of the moves played, L for left, R for right, U for up and D for down
+    private final StringBuilder path = new StringBuilder();
+
+    // places the new tiles of this game
+    private final SplittableRandom random;
+
+    /**
+     * Creates a new game with two 2 at random locations.
+     * @param seed Seed of the random generator that places every tile of the game.
+     */
+    public GameSession(long seed) {
+        this(new SplittableRandom(seed));
+    }
+
+    /**
+     * Creates a new game with two 2 at random locations.
+     * @param random Places the first two 2 and every new tile of the game.
+     */
+    public GameSession(SplittableRandom random) {
+        this.random = random;
+        this.board = Bitboard.EMPTY_BOARD;
+        board = Bitboard.setExponent(board, emptyCell(board, random.nextInt(16)), 1);
+        board = Bitboard.setExponent(board, emptyCell(board, random.nextInt(15)), 1);
+    }
+
+    /**
+     * Creates a game that continues from a given board.
+     * @param board The packed board to start from.
+     * @param random Places every new tile of the game.
+     */
+    public GameSession(long board, SplittableRandom random) {
+        this.random = random;
+        this.board = board;
+    }
+
+    /**
+     * The play method plays the game to the end, asking the strategy for every move. After a
+     * move that changed the board a random 2 or 4 is added, unless the game is already over.
+     * A move that changed the board always leaves an empty location for it.
+     * @param strategy Chooses the moves.
+     * @return This session, to read the final board and score.
+     */
+    public GameSession play(Strategy strategy) {
+        return play(strategy, null);
+    }
+
+    /**
+     * The play method plays the game to the end like play(strategy), and adds every turn to a
+     * trace: the move, its score, the tile added after it and the time the strategy took to
+     * choose it.
+     * @param strategy Chooses the moves.
+     * @param trace Gets every turn and the end of the game, null to keep no trace.
+     * @return This session, to read the final board and score.
+     */
+    public GameSession play(Strategy strategy, GameTrace trace) {
+        while (!isOver()) {
+            long before = board;
+            long start = trace != null ? System.nanoTime() : 0;
+            int chosen = strategy.chooseMove(this);
+            long decisionNanos = trace != null ? System.nanoTime() - start : 0;
+            int moveScore = move(chosen);
+            long moved = board;
+            if (board != before && !isOver())
+                addRandom2or4();
+            if (trace != null)
+                trace.turn(chosen, moveScore, moved, board, decisionNanos);
+        }
+        if (trace != null)
+            trace.finish(board, score);
+        return this;
+    }
+
+    /**
+     * The move method plays one move and adds its score. A move that does not change the
+     * board is still recorded in the path.
+     * @param move LEFT, RIGHT, UP or DOWN.
+     * @return The score of the move.
+     */
+    public int move(int move) {
+        int moveScore = Bitboard.moveScore(board, move);
+        board = Bitboard.move(board, move);
+        score += moveScore;
+        path.append(Bitboard.MOVE_LETTERS[move]);
+        return moveScore;
+    }
+
+    /**
+     * The addRandom2or4 method adds a 2 or a 4, equally likely, at a random empty location.
+     * The board must have an empty location.
+     */
+    public void addRandom2or4() {
+        board = addRandom2or4(board, random);
+    }
+
+    /**
+     * The addRandom2or4 method adds a 2 or a 4, equally likely, at a random empty location
+     * of a packed board. One draw picks both the location, among the empty ones only, and
+     * the tile, so a nearly full board costs no more than an empty one.
+     * @param board The packed board, with at least one empty location.
+     * @param random The random generator of the game.
+     * @return The board with the new tile.
+     */
+    public static long addRandom2or4(long board, SplittableRandom random) {
+        int draw = random.nextInt(Bitboard.countEmpty(board) * 2);
+        return Bitboard.setExponent(board, emptyCell(board, draw >>> 1), (draw & 1) + 1);
+    }
+
+    /**
+     * The isMovesAvailable method checks if any of the 4 moves changes the board, with the
+     * row tables of the engine. The board itself is not changed.
+     * @return true if any move is available.
+     */
+    public boolean isMovesAvailable() {
+        return !Bitboard.isTerminal(board);
+    }
+
+    /**
+     * The is2048Exist method checks the board for the winning tile.
+     * @return true if 2048 is on the board.
+     */
+    public boolean is2048Exist() {
+        return Bitboard.maxTile(board) >= WINNING_TILE;
+    }
+
+    /**
+     * The isOver method checks if the game has ended, won or lost.
+     * @return true if no move is available or 2048 is on the board.
+     */
+    public boolean isOver() {
+        return !isMovesAvailable() || is2048Exist();
+    }
+
+    /**
+     * The board method returns the packed board of the game.
+     * @return The packed board.
+     */
+    public long board() {
+        return board;
+    }
+
+    /**
+     * The score method returns the current score of the game.
+     * @return The sum of the scores of all moves played.
+     */
+    public int score() {
+        return score;
+    }
+
+    /**
+     * The path method returns the moves played so far.
+     * @return One letter per move, L for left, R for right, U for up and D for down.
+     */
+    public String path() {
+        return path.toString();
+    }
+
+    /**
+     * The random method returns the random generator of the game, so strategies that
+     * pick random moves do not share one generator between games.
+     * @return The random generator of this game.
+     */
+    public SplittableRandom random() {
+        return random;
+    }
+
+    /**
+     * The emptyCell method finds an empty location by its rank among the empty locations.
+     * @param board The packed board.
+     * @param rank From 0 to the number of empty locations - 1, in row by row order.
+     * @return The cell index of the empty location.
+     */
+    private static int emptyCell(long board, int rank) {
+        long empty = Bitboard.emptyMask(board);
+        for (int i = 0; i < rank; i++)
+            empty &= empty - 1;
+        return Long.numberOfTrailingZeros(empty) >>> 2;
+    }
+}
@@ -0,0 +1,316 @@
+package engine;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * The GameTrace class holds every turn of one game: the move chosen, the score it made, the tile
+ * added after it and the time the strategy took to choose it, with the start board, the final
+ * board and score, and the seed of the game when it is known. GameSession.play fills a trace as
+ * the game is played, and TraceWriter appends it to a trace file in the layout described by
+ * TraceFile. A trace read back from a file can be replayed: verify plays the moves and tiles of
+ * every turn again from the start board with the rules of Bitboard and checks each score, tile
+ * and the final board, so the same trace always gives the same answer.
+ */
+public final class GameTrace {
+
+    // holds the start board of the game, and its seed when the SEEDED flag is set
+    private final long startBoard;
+    private final long seed;
+    private final boolean seeded;
+
+    // holds the turns: the turn bytes of TraceFile, the score of every move and the time taken
+    // to choose it in microseconds
+    private byte[] turns = new byte[256];
+    private int[] scores = new int[256];
+    private int[] micros = new int[256];
+    private int count;
+
+    // holds the board and the score the game ended with
+    private long finalBoard;
+    private int finalScore;
+
+    /**
+     * Creates an empty trace of a game whose seed is not known.
+     * @param startBoard The packed board the game starts from.
+     */
+    public GameTrace(long startBoard) {
+        this(startBoard, 0, false);
+    }
+
+    /**
+     * Creates an empty trace of a game played from a seed.
+     * @param startBoard The packed board the game starts from.
+     * @param seed The seed of the random generator of the game.
+     */
+    public GameTrace(long startBoard, long seed) {
+        this(startBoard, seed, true);
+    }
+
+    private GameTrace(long startBoard, long seed, boolean seeded) {
+        this.startBoard = startBoard;
+        this.seed = seed;
+        this.seeded = seeded;
+        this.finalBoard = startBoard;
+    }
+
+    /**
+     * The turn method adds one turn to the trace. The tile added after the move, if any, is the
+     * one cell where the two boards differ.
+     * @param move LEFT, RIGHT, UP or DOWN.
+     * @param score The score of the move.
+     * @param moved The packed board after the move.
+     * @param next The packed board after the move and the new tile, the same board if no tile was added.
+     * @param decisionNanos The time the strategy took to choose the move, in nanoseconds.
+     */
+    public void turn(int move, int score, long moved, long next, long decisionNanos) {
+        if (count == turns.length) {
+            turns = Arrays.copyOf(turns, count * 2);
+            scores = Arrays.copyOf(scores, count * 2);
+            micros = Arrays.copyOf(micros, count * 2);
+        }
+        int turn = move;
+        long spawn = moved ^ next;
+        if (spawn != 0) {
+            int cell = Long.numberOfTrailingZeros(spawn) >>> 2;
+            turn |= TraceFile.SPAWNED | (cell << 4);
+            if (Bitboard.getExponent(next, cell) == 2)
+                turn |= TraceFile.FOUR;
+        }
+        turns[count] = (byte) turn;
+        scores[count] = score;
+        micros[count] = (int) Math.min(Integer.MAX_VALUE, decisionNanos / 1000);
+        count++;
+    }
+
+    /**
+     * The finish method records how the game ended.
+     * @param board The final packed board.
+     * @param score The final score.
+     */
+    public void finish(long board, int score) {
+        this.finalBoard = board;
+        this.finalScore = score;
+    }
+
+    /**
+     * The startBoard method returns the board the game started from.
+     * @return The packed board.
+     */
+    public long startBoard() {
+        return startBoard;
+    }
+
+    /**
+     * The hasSeed method tells if the seed of the game is known.
+     * @return true if seed returns the seed of the game.
+     */
+    public boolean hasSeed() {
+        return seeded;
+    }
+
+    /**
+     * The seed method returns the seed of the random generator of the game.
+     * @return The seed, 0 if it is not known.
+     */
+    public long seed() {
+        return seed;
+    }
+
+    /**
+     * The turns method returns the number of turns of the game.
+     * @return Number of moves played.
+     */
+    public int turns() {
+        return count;
+    }
+
+    /**
+     * The move method returns the move of a turn.
+     * @param turn The turn number, from 0.
+     * @return LEFT, RIGHT, UP or DOWN.
+     */
+    public int move(int turn) {
+        return turns[turn] & 0x3;
+    }
+
+    /**
+     * The score method returns the score the move of a turn made.
+     * @param turn The turn number, from 0.
+     * @return The score of the move.
+     */
+    public int score(int turn) {
+        return scores[turn];
+    }
+
+    /**
+     * The spawnCell method returns the cell of the tile added after the move of a turn.
+     * @param turn The turn number, from 0.
+     * @return The cell index, or -1 if no tile was added.
+     */
+    public int spawnCell(int turn) {
+        return (turns[turn] & TraceFile.SPAWNED) != 0 ? (turns[turn] >>> 4) & 0xF : -1;
+    }
+
+    /**
+     * The spawnTile method returns the tile added after the move of a turn.
+     * @param turn The turn number, from 0.
+     * @return 2 or 4, or 0 if no tile was added.
+     */
+    public int spawnTile(int turn) {
+        if ((turns[turn] & TraceFile.SPAWNED) == 0)
+            return 0;
+        return (turns[turn] & TraceFile.FOUR) != 0 ? 4 : 2;
+    }
+
+    /**
+     * The decisionMicros method returns the time the strategy took to choose the move of a turn.
+     * @param turn The turn number, from 0.
+     * @return The time in microseconds.
+     */
+    public int decisionMicros(int turn) {
+        return micros[turn];
+    }
+
+    /**
+     * The finalBoard method returns the board the game ended with.
+     * @return The packed board.
+     */
+    public long finalBoard() {
+        return finalBoard;
+    }
+
+    /**
+     * The finalScore method returns the score the game ended with.
+     * @return The final score.
+     */
+    public int finalScore() {
+        return finalScore;
+    }
+
+    /**
+     * The boards method plays the turns from the start board without checking them.
+     * @return The board before every turn, and the board after the last one at index turns().
+     */
+    public long[] boards() {
+        long[] boards = new long[count + 1];
+        long board = startBoard;
+        for (int turn = 0; turn < count; turn++) {
+            boards[turn] = board;
+            board = Bitboard.move(board, move(turn));
+            if (spawnCell(turn) >= 0)
+                board = Bitboard.setExponent(board, spawnCell(turn), spawnTile(turn) == 4 ? 2 : 1);
+        }
+        boards[count] = board;
+        return boards;
+    }
+
+    /**
+     * The verify method replays the game from the start board and checks every turn: the game
+     * was not over before it, the score is the score of the move, and a tile was added to an
+     * empty cell after every move that changed the board unless the move ended the game. The
+     * board and score after the last turn must be the final ones, and the game must be over.
+     * @return null if the trace is a game of the rules, otherwise the first turn that is not.
+     */
+    public String verify() {
+        long board = startBoard;
+        int score = 0;
+        for (int turn = 0; turn < count; turn++) {
+            if (isOver(board))
+                return "turn " + turn + ": the game was already over";
+            int move = move(turn);
+            if (scores[turn] != Bitboard.moveScore(board, move))
+                return "turn " + turn + ": " + Bitboard.MOVE_LETTERS[move] + " scores "
+                        + Bitboard.moveScore(board, move) + ", the trace says " + scores[turn];
+            long moved = Bitboard.move(board, move);
+            int cell = spawnCell(turn);
+            if (cell >= 0) {
+                if (moved == board)
+                    return "turn " + turn + ": a tile was added after a move that did not change the board";
+                if (Bitboard.getExponent(moved, cell) != 0)
+                    return "turn " + turn + ": a tile was added to the full cell " + cell;
+                moved = Bitboard.setExponent(moved, cell, spawnTile(turn) == 4 ? 2 : 1);
+            } else if (moved != board && !isOver(moved)) {
+                return "turn " + turn + ": no tile was added after " + Bitboard.MOVE_LETTERS[move];
+            }
+            board = moved;
+            score += scores[turn];
+        }
+        if (board != finalBoard)
+            return "the turns end on " + String.format("%016x", board) + ", the trace says "
+                    + String.format("%016x", finalBoard);
+        if (score != finalScore)
+            return "the turns score " + score + ", the trace says " + finalScore;
+        if (!isOver(board))
+            return "the game is not over";
+        return null;
+    }
+
+    /**
+     * The isOver method checks if a game has ended on a board, like GameSession.isOver.
+     * @return true if no move changes the board or 2048 is on it.
+     */
+    private static boolean isOver(long board) {
+        return Bitboard.isTerminal(board) || Bitboard.maxTile(board) >= GameSession.WINNING_TILE;
+    }
+
+    /**
+     * The encode method writes the trace as one record of a trace file, with its length.
+     * @return A buffer holding the record, ready to be written.
+     */
+    ByteBuffer encode() {
+        // a varint of an int is at most 5 bytes
+        ByteBuffer record = ByteBuffer.allocate(TraceFile.LENGTH_BYTES + 1 + 8 + 8 + 5 + count * 11 + 8 + 5);
+        record.position(TraceFile.LENGTH_BYTES);
+        record.put((byte) (seeded ? TraceFile.SEEDED : 0));
+        record.putLong(seed);
+        record.putLong(startBoard);
+        TraceFile.putVarint(record, count);
+        for (int turn = 0; turn < count; turn++) {
+            record.put(turns[turn]);
+            TraceFile.putVarint(record, scores[turn]);
+            TraceFile.putVarint(record, micros[turn]);
+        }
+        record.putLong(finalBoard);
+        TraceFile.putVarint(record, finalScore);
+        record.putInt(0, record.position() - TraceFile.LENGTH_BYTES);
+        record.flip();
+        return record;
+    }
+
+    /**
+     * The decode method reads one record of a trace file, without its length.
+     * @param record The bytes of the record.
+     * @return The trace of the game.
+     * @throws IOException if the record is not a valid trace.
+     */
+    static GameTrace decode(ByteBuffer record) throws IOException {
+        try {
+            int flags = record.get();
+            long seed = record.getLong();
+            GameTrace trace = new GameTrace(record.getLong(), seed, (flags & TraceFile.SEEDED) != 0);
+            long turns = TraceFile.getVarint(record);
+            // every turn takes at least 3 bytes
+            if (turns > record.remaining() / 3)
+                throw new IOException("A record of " + record.limit() + " bytes cannot hold " + turns + " turns");
+            trace.turns = new byte[Math.max(1, (int) turns)];
+            trace.scores = new int[trace.turns.length];
+            trace.micros = new int[trace.turns.length];
+            for (int turn = 0; turn < turns; turn++) {
+                trace.turns[turn] = record.get();
+                trace.scores[turn] = (int) TraceFile.getVarint(record);
+                trace.micros[turn] = (int) TraceFile.getVarint(record);
+            }
+            trace.count = (int) turns;
+            trace.finalBoard = record.getLong();
+            trace.finalScore = (int) TraceFile.getVarint(record);
+            if (record.hasRemaining())
+                throw new IOException("The record has " + record.remaining() + " bytes after its game");
+            return trace;
+        } catch (BufferUnderflowException e) {
+            throw new IOException("The record ends inside its game", e);
+        }
+    }
+}
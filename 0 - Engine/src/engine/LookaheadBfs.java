@@ -0,0 +1,271 @@
+package engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The LookaheadBfs class finds the k moves with the maximum cumulated score from a board, with the
+ * rules of the BFS milestone: every one of the 4 moves is tried at every level (also moves that do
+ * not change the board), and after each move a 2 is added in the first empty spot, scanning the
+ * board row by row.
+ * The search is a breadth-first search over the implicit 4-ary move tree. Only the frontier of the
+ * current level is kept, as parallel primitive arrays of boards, cumulated scores and paths, where
+ * a path holds 2 bits per move (LEFT, RIGHT, UP or DOWN, the first move in the highest bits). The
+ * maximum is found in the same pass that builds the next level, and the children of the last level
+ * are scored without being stored.
+ * Like the tree of the milestone, nodes are visited level by level, each node's children in the
+ * order left, right, up, down, and only a strictly greater score replaces the maximum. So the path
+ * returned is the first one with the maximum score in that order, and it is shorter than k when a
+ * shallower node already has the maximum.
+ * Two cuts keep deep frontiers small without changing the result:
+ * - Duplicates: the new tile always goes in the first empty spot, so two nodes of a level with the
+ *   same board have exactly the same future. Only the one with the higher score is expanded, the
+ *   first one on a tie, and it keeps its own place in the level order.
+ * - Bounds: the next move scores at most the best of the 4 moves, a later move at most the sum
+ *   of the tiles on the board, and every move adds a 2. A node whose score plus that bound over
+ *   its remaining moves cannot beat the maximum found so far is not expanded, since only a
+ *   strictly greater score replaces the maximum.
+ */
+public final class LookaheadBfs {
+
+    // the largest lookahead, a path of 2 bits per move must fit in a long
+    public static final int MAX_DEPTH = 32;
+
+    // bytes held by one frontier node: board, score and path
+    public static final int NODE_BYTES = 8 + 4 + 8;
+
+    private LookaheadBfs() {
+    }
+
+    /**
+     * The Result class holds the maximum cumulated score, the path that reaches it and the
+     * size of every level of the search.
+     */
+    public static final class Result {
+        // the maximum cumulated score, 0 if no move scores
+        public final int maxScore;
+
+        // the moves of the path, 2 bits each, the first move in the highest bits
+        public final long path;
+
+        // number of moves in the path, 0 if no move scores
+        public final int length;
+
+        // the statistics of every level, from level 1
+        public final List<Level> levels;
+
+        Result(int maxScore, long path, int length, List<Level> levels) {
+            this.maxScore = maxScore;
+            this.path = path;
+            this.length = length;
+            this.levels = Collections.unmodifiableList(levels);
+        }
+
+        /**
+         * The move method reads one move of the path.
+         * @param i From 0, the first move, to length - 1.
+         * @return LEFT, RIGHT, UP or DOWN.
+         */
+        public int move(int i) {
+            return (int) (path >>> ((length - 1 - i) * 2)) & 0x3;
+        }
+
+        /**
+         * The letters method writes the path as move letters.
+         * @return One letter per move, L for left, R for right, U for up and D for down.
+         */
+        public String letters() {
+            StringBuilder letters = new StringBuilder(length);
+            for (int i = 0; i < length; i++)
+                letters.append(Bitboard.MOVE_LETTERS[move(i)]);
+            return letters.toString();
+        }
+
+        @Override
+        public String toString() {
+            return maxScore + " " + letters();
+        }
+    }
+
+    /**
+     * The Level class holds the statistics of one level of the search.
+     */
+    public static final class Level {
+        // the level, 1 for the first move
+        public final int level;
+
+        // number of children scored at this level
+        public final long scored;
+
+        // children not kept because a duplicate board of this level scored at least as much
+        public final long duplicates;
+
+        // children not kept because their bound cannot beat the maximum
+        public final long pruned;
+
+        // children kept to be expanded at the next level
+        public final long frontier;
+
+        // bytes of the arrays of the next frontier and of the duplicate table
+        public final long bytes;
+
+        Level(int level, long scored, long duplicates, long pruned, long frontier, long bytes) {
+            this.level = level;
+            this.scored = scored;
+            this.duplicates = duplicates;
+            this.pruned = pruned;
+            this.frontier = frontier;
+            this.bytes = bytes;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("level %2d: %,12d scored %,12d duplicates %,12d pruned %,12d kept %,10.1f KB",
+                    level, scored, duplicates, pruned, frontier, bytes / 1024.0);
+        }
+    }
+
+    /**
+     * The search method finds the maximum cumulated score within depth moves.
+     * @param board The packed initial board.
+     * @param depth Number of moves to look ahead, from 1 to MAX_DEPTH.
+     * @return The maximum score, its path and the statistics of every level.
+     */
+    public static Result search(long board, int depth) {
+        if (depth < 1 || depth > MAX_DEPTH)
+            throw new IllegalArgumentException("depth must be from 1 to " + MAX_DEPTH + ": " + depth);
+
+        int maxScore = 0;
+        long maxPath = 0;
+        int maxLength = 0;
+        ArrayList<Level> levels = new ArrayList<>();
+
+        // the frontier of the current level, starting with the initial board
+        long[] boards = {board};
+        int[] scores = {0};
+        long[] paths = {0};
+        int size = 1;
+
+        for (int level = 1; level <= depth; level++) {
+            boolean last = level == depth;
+            int remaining = depth - level;
+            long scored = 0, duplicates = 0, pruned = 0, bytes = 0;
+
+            long[] nextBoards = null;
+            int[] nextScores = null;
+            long[] nextPaths = null;
+            int[] table = null;
+            if (!last) {
+                nextBoards = new long[size * 4];
+                nextScores = new int[size * 4];
+                nextPaths = new long[size * 4];
+                table = new int[Integer.highestOneBit(size * 8 - 1) << 1];
+                Arrays.fill(table, -1);
+                bytes = (long) size * 4 * NODE_BYTES + table.length * 4L;
+            }
+            int next = 0;
+
+            for (int node = 0; node < size; node++) {
+                if (scores[node] < 0)
+                    continue;
+                for (int move = 0; move < 4; move++) {
+                    int score = scores[node] + Bitboard.moveScore(boards[node], move);
+                    long path = (paths[node] << 2) | move;
+                    scored++;
+                    if (score > maxScore) {
+                        maxScore = score;
+                        maxPath = path;
+                        maxLength = level;
+                    }
+                    if (last)
+                        continue;
+
+                    long child = addTwo(Bitboard.move(boards[node], move));
+                    if (score + bound(child, remaining) <= maxScore) {
+                        pruned++;
+                        continue;
+                    }
+
+                    // find the child among the kept boards of this level
+                    int slot = slot(child, table.length);
+                    while (table[slot] >= 0 && nextBoards[table[slot]] != child)
+                        slot = (slot + 1) & (table.length - 1);
+                    if (table[slot] >= 0) {
+                        duplicates++;
+                        int kept = table[slot];
+                        if (score <= nextScores[kept])
+                            continue;
+                        // the later node scores more, it takes its own place in the level order
+                        nextScores[kept] = -1;
+                    }
+                    table[slot] = next;
+                    nextBoards[next] = child;
+                    nextScores[next] = score;
+                    nextPaths[next] = path;
+                    next++;
+                }
+            }
+
+            // nodes replaced by a later duplicate are still in the arrays, marked with score -1
+            int kept = 0;
+            for (int i = 0; i < next; i++) {
+                if (nextScores[i] >= 0)
+                    kept++;
+            }
+            levels.add(new Level(level, scored, duplicates, pruned, kept, bytes));
+
+            boards = nextBoards;
+            scores = nextScores;
+            paths = nextPaths;
+            size = next;
+        }
+        return new Result(maxScore, maxPath, maxLength, levels);
+    }
+
+    /**
+     * The bound method returns the most a board can still score in the given number of moves.
+     * The next move scores at most the best of its 4 moves. Every later move scores the sum of
+     * the tiles made by its merges, which is at most the sum of the tiles on the board, and every
+     * move adds a 2 to that sum.
+     * @param board The packed board.
+     * @param moves Number of moves left, at least 1.
+     * @return An upper bound of the cumulated score of the remaining moves.
+     */
+    static long bound(long board, int moves) {
+        int next = 0;
+        for (int move = 0; move < 4; move++)
+            next = Math.max(next, Bitboard.moveScore(board, move));
+        long sum = 0;
+        for (int index = 0; index < 16; index++) {
+            int exponent = Bitboard.getExponent(board, index);
+            if (exponent > 0)
+                sum += 1L << exponent;
+        }
+        return next + (moves - 1) * sum + (long) (moves - 1) * moves;
+    }
+
+    /**
+     * The addTwo method adds a 2 in the first empty spot, scanning the board row by row.
+     * @param board The packed board.
+     * @return The board with the 2, or the same board if it is full.
+     */
+    public static long addTwo(long board) {
+        long empty = Bitboard.emptyMask(board);
+        if (empty == 0)
+            return board;
+        return Bitboard.setExponent(board, Long.numberOfTrailingZeros(empty) >>> 2, 1);
+    }
+
+    /**
+     * The slot method hashes a board into the duplicate table.
+     * @param board The packed board.
+     * @param length The length of the table, a power of two.
+     * @return The first slot to look at.
+     */
+    private static int slot(long board, int length) {
+        long hash = board * 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> 40) & (length - 1);
+    }
+}
@@ -0,0 +1,167 @@
+package engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * The OpeningBook class holds the best move of every board of the first moves of a game, solved
+ * ahead of time by OpeningBookBuilder, so a game plays its first moves with a table lookup
+ * instead of a search. Boards are kept by their canonical board (see Symmetry), sorted, with the
+ * best move of the canonical board; a lookup turns the board into its canonical board, finds it
+ * with a binary search and maps the move back to the board.
+ * A book covers the boards reached after fewer than moves() moves of a game that starts from two
+ * 2s, whatever tiles were added and as long as every move played was the move of the book. Such a
+ * board has at most moves() + 1 tiles, so boards with more tiles are missed without a search.
+ * A book file is big endian:
+ * - a header of 16 bytes: the magic number "BOOK" in ASCII, the version (2 bytes), the depth the
+ *   boards were searched to (1 byte), the number of moves covered (1 byte) and the number of
+ *   boards N (8 bytes);
+ * - N records of 8 bytes, the canonical boards in increasing order;
+ * - N records of 1 byte, the best move of every canonical board in the same order.
+ */
+public final class OpeningBook {
+
+    // "BOOK" in ASCII, the first 4 bytes of every book file
+    public static final int MAGIC = 0x424F4F4B;
+
+    // the version of the format written by write
+    public static final short VERSION = 1;
+
+    // bytes of the header
+    public static final int HEADER_BYTES = 16;
+
+    // returned by lookup for a board that is not in the book
+    public static final int NOT_FOUND = -1;
+
+    // number of cells of a board
+    private static final int CELLS = Bitboard.SIZE * Bitboard.SIZE;
+
+    // holds the canonical boards in increasing order, and the best move of each
+    private final long[] boards;
+    private final byte[] moves;
+
+    // holds the depth the boards were searched to and the number of moves covered
+    private final int depth;
+    private final int covered;
+
+    /**
+     * Creates a book. The boards must be canonical and in increasing order.
+     * @param boards The canonical boards, in increasing order.
+     * @param moves The best move of every board, in the same order.
+     * @param depth The depth the boards were searched to.
+     * @param covered The number of moves of a game the book covers.
+     */
+    OpeningBook(long[] boards, byte[] moves, int depth, int covered) {
+        if (boards.length != moves.length)
+            throw new IllegalArgumentException(boards.length + " boards but " + moves.length + " moves");
+        if (depth < 1 || depth > SearchEngine.MAX_DEPTH || covered < 1 || covered > CELLS - 2)
+            throw new IllegalArgumentException("Not a valid book: depth " + depth + ", " + covered + " moves");
+        this.boards = boards;
+        this.moves = moves;
+        this.depth = depth;
+        this.covered = covered;
+    }
+
+    /**
+     * The lookup method finds the best move of a board in the book.
+     * @param board The packed board.
+     * @return LEFT, RIGHT, UP or DOWN, or NOT_FOUND if the board is not in the book.
+     */
+    public int lookup(long board) {
+        // a board of the book has at most covered + 1 tiles
+        if (Bitboard.countEmpty(board) < CELLS - 1 - covered)
+            return NOT_FOUND;
+        int symmetry = Symmetry.canonicalSymmetry(board);
+        int index = Arrays.binarySearch(boards, Symmetry.transform(board, symmetry));
+        if (index < 0)
+            return NOT_FOUND;
+        return Symmetry.inverseMove(symmetry, moves[index]);
+    }
+
+    /**
+     * The size method returns the number of canonical boards of the book.
+     * @return Number of boards.
+     */
+    public int size() {
+        return boards.length;
+    }
+
+    /**
+     * The depth method returns the depth the boards of the book were searched to.
+     * @return The search depth.
+     */
+    public int depth() {
+        return depth;
+    }
+
+    /**
+     * The moves method returns the number of moves of a game the book covers.
+     * @return Number of moves.
+     */
+    public int moves() {
+        return covered;
+    }
+
+    /**
+     * The read method reads a book file.
+     * @param file The book file, written by write.
+     * @return The book.
+     * @throws IOException if the file cannot be read or is not a valid book file.
+     */
+    public static OpeningBook read(Path file) throws IOException {
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(file));
+        if (bytes.remaining() < HEADER_BYTES || bytes.getInt() != MAGIC)
+            throw new IOException("Not a book file: " + file);
+        short version = bytes.getShort();
+        if (version != VERSION)
+            throw new IOException("Unsupported book version " + version + " in " + file);
+        int depth = bytes.get();
+        int covered = bytes.get();
+        long count = bytes.getLong();
+        if (count < 0 || count * (BoardFile.BOARD_BYTES + 1) != bytes.remaining())
+            throw new IOException("Book file " + file + " does not hold " + count + " boards");
+        long[] boards = new long[(int) count];
+        byte[] moves = new byte[(int) count];
+        bytes.asLongBuffer().get(boards);
+        bytes.position(HEADER_BYTES + boards.length * BoardFile.BOARD_BYTES);
+        bytes.get(moves);
+        for (int i = 0; i < boards.length; i++) {
+            if ((i > 0 && boards[i - 1] >= boards[i]) || moves[i] < 0 || moves[i] > Bitboard.DOWN)
+                throw new IOException("Book file " + file + " is not sorted or has a bad move at board " + i);
+        }
+        try {
+            return new OpeningBook(boards, moves, depth, covered);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Not a valid book file: " + file, e);
+        }
+    }
+
+    /**
+     * The write method writes the book to a book file that read reads back.
+     * @param file The book file to write.
+     * @throws IOException if the file cannot be written.
+     */
+    public void write(Path file) throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate(HEADER_BYTES + boards.length * (BoardFile.BOARD_BYTES + 1));
+        bytes.putInt(MAGIC);
+        bytes.putShort(VERSION);
+        bytes.put((byte) depth);
+        bytes.put((byte) covered);
+        bytes.putLong(boards.length);
+        for (long board : boards)
+            bytes.putLong(board);
+        bytes.put(moves);
+        Files.write(file, bytes.array());
+    }
+
+    /**
+     * The summary method describes the book as one line of text.
+     * @return The number of boards, moves covered and search depth.
+     */
+    public String summary() {
+        return String.format("Opening book: %d boards, first %d moves, depth %d", boards.length, covered, depth);
+    }
+}
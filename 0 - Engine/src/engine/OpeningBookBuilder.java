@@ -0,0 +1,248 @@
+package engine;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The OpeningBookBuilder program solves the first moves of every game ahead of time and writes
+ * them to a book file that OpeningBook reads. A game starts from two 2s in any 2 of the 16 cells,
+ * 120 boards that are only 21 canonical boards. The builder searches every canonical board of a
+ * move to a high depth, plays the best move, adds every possible 2 and 4 and keeps the canonical
+ * boards of the results as the boards of the next move. A board can be reached after different
+ * numbers of moves (a 4 is as many tiles as two 2s), so only the boards that are not in the book
+ * yet are searched. The boards of one move are searched at the same time on a pool of threads.
+ * The first argument names the search, as in SelfPlay: "minimax", "expectimax", "heuristic" or
+ * "weighted" (the default). A book should be used with the search it was built with.
+ * Arguments: "-moves N" moves covered (8), "-depth N" search depth (7), "-tt MB" a symmetric
+ * transposition table shared by all the searches (64, 0 for none), "-threads N" (the number of
+ * processors), "-weights FILE" the weights of the weighted search and "-out FILE" (book.bin).
+ * For example: java -cp out engine.OpeningBookBuilder weighted -moves 4 -depth 7 -out book.bin
+ */
+public final class OpeningBookBuilder {
+
+    // the search that solves every board
+    private final SearchEngine search;
+
+    // search depth of every board
+    private final int depth;
+
+    // number of boards searched at the same time
+    private final int threads;
+
+    /**
+     * Creates a builder.
+     * @param search The search that solves every board, shared by all the threads.
+     * @param depth The search depth of every board.
+     * @param threads Number of boards searched at the same time, at least 1.
+     */
+    public OpeningBookBuilder(SearchEngine search, int depth, int threads) {
+        this.search = search;
+        this.depth = depth;
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Builds a book and writes it to a book file.
+     *
+     * @param args The settings of the book, see the class comment.
+     * @throws IOException if the weights file cannot be read or the book file cannot be written.
+     */
+    public static void main(String[] args) throws IOException {
+        String name = args.length > 0 && !args[0].startsWith("-") ? args[0] : "weighted";
+        int moves = 8;
+        int depth = 7;
+        int tableMegabytes = 64;
+        int threads = Runtime.getRuntime().availableProcessors();
+        WeightedEvaluator weighted = null;
+        Path out = Paths.get("book.bin");
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-moves"))
+                moves = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-depth"))
+                depth = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-tt"))
+                tableMegabytes = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-threads"))
+                threads = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-weights"))
+                weighted = WeightedEvaluator.load(Paths.get(args[++i]));
+            else if (args[i].equals("-out"))
+                out = Paths.get(args[++i]);
+        }
+        // every board searched is canonical, the symmetric table also shares the boards below them
+        TranspositionTable table = tableMegabytes > 0 ? new TranspositionTable(tableMegabytes, true) : null;
+
+        SearchEngine search;
+        switch (name.toLowerCase()) {
+            case "minimax":
+                search = new SearchEngine(SearchEngine.Mode.MINIMAX, Evaluator.MERGE_SCORE, table);
+                break;
+            case "expectimax":
+                search = new SearchEngine(SearchEngine.Mode.EXPECTIMAX, Evaluator.MERGE_SCORE, table);
+                break;
+            case "heuristic":
+                search = new SearchEngine(SearchEngine.Mode.MINIMAX, Evaluator.EMPTY_CELLS, table);
+                break;
+            case "weighted":
+                search = new SearchEngine(SearchEngine.Mode.EXPECTIMAX,
+                        weighted != null ? weighted : WeightedEvaluator.defaults(), table);
+                break;
+            default:
+                System.out.println("Unknown search " + name + ", use minimax, expectimax, heuristic or weighted.");
+                return;
+        }
+
+        System.out.println("Building a " + name + " book of the first " + moves + " moves at depth " + depth
+                + " on " + threads + " threads");
+        long start = System.nanoTime();
+        OpeningBook book = new OpeningBookBuilder(search, depth, threads).build(moves);
+        book.write(out);
+        System.out.println(String.format("%s in %s, built in %.1f s", book.summary(), out,
+                (System.nanoTime() - start) / 1e9));
+        if (table != null)
+            System.out.println(table.summary());
+    }
+
+    /**
+     * The build method solves the boards of the first moves of every game.
+     * @param moves The number of moves covered, at least 1.
+     * @return The book.
+     */
+    public OpeningBook build(int moves) {
+        long start = System.nanoTime();
+        long[] boards = startBoards();
+        byte[] bestMoves = solve(boards);
+        System.out.println(String.format("  move 1: %d boards in %.1f s", boards.length, (System.nanoTime() - start) / 1e9));
+        long[] level = boards;
+        byte[] levelMoves = bestMoves;
+        for (int move = 1; move < moves; move++) {
+            start = System.nanoTime();
+            level = nextBoards(level, levelMoves, boards);
+            levelMoves = solve(level);
+            System.out.println(String.format("  move %d: %d boards in %.1f s", move + 1, level.length,
+                    (System.nanoTime() - start) / 1e9));
+
+            // merge the sorted boards of this move into the sorted boards of the book
+            long[] mergedBoards = new long[boards.length + level.length];
+            byte[] mergedMoves = new byte[mergedBoards.length];
+            int a = 0, b = 0;
+            for (int i = 0; i < mergedBoards.length; i++) {
+                if (b == level.length || (a < boards.length && boards[a] < level[b])) {
+                    mergedBoards[i] = boards[a];
+                    mergedMoves[i] = bestMoves[a++];
+                }
+                else {
+                    mergedBoards[i] = level[b];
+                    mergedMoves[i] = levelMoves[b++];
+                }
+            }
+            boards = mergedBoards;
+            bestMoves = mergedMoves;
+        }
+        return new OpeningBook(boards, bestMoves, depth, moves);
+    }
+
+    /**
+     * The startBoards method makes the canonical boards a game can start from.
+     * @return The canonical boards with two 2s, sorted and without repeats.
+     */
+    static long[] startBoards() {
+        long[] boards = new long[16 * 15 / 2];
+        int count = 0;
+        for (int first = 0; first < 16; first++) {
+            for (int second = first + 1; second < 16; second++)
+                boards[count++] = Symmetry.canonical(Bitboard.setExponent(Bitboard.setExponent(0, first, 1), second, 1));
+        }
+        return distinct(boards, count);
+    }
+
+    /**
+     * The nextBoards method plays the best move of every board and adds every possible tile.
+     * @param boards The canonical boards of a move.
+     * @param bestMoves The best move of every board.
+     * @param solved The canonical boards already in the book, sorted.
+     * @return The canonical boards of the next move that are not in the book, sorted and without
+     *         repeats.
+     */
+    private static long[] nextBoards(long[] boards, byte[] bestMoves, long[] solved) {
+        // a move can empty more cells than the board had, so make room for a 2 and a 4 in every cell
+        long[] next = new long[boards.length * 32];
+        int count = 0;
+        for (int i = 0; i < boards.length; i++) {
+            long moved = Bitboard.move(boards[i], bestMoves[i]);
+            // a move that does not change the board adds no tile, the game would ask again
+            if (moved == boards[i])
+                continue;
+            long empty = Bitboard.emptyMask(moved);
+            while (empty != 0) {
+                int cell = Long.numberOfTrailingZeros(empty) >>> 2;
+                next[count++] = Symmetry.canonical(Bitboard.setExponent(moved, cell, 1));
+                next[count++] = Symmetry.canonical(Bitboard.setExponent(moved, cell, 2));
+                empty &= ~(0xFL << (cell * 4));
+            }
+        }
+        long[] distinct = distinct(next, count);
+        int kept = 0;
+        for (long board : distinct) {
+            if (Arrays.binarySearch(solved, board) < 0)
+                distinct[kept++] = board;
+        }
+        return Arrays.copyOf(distinct, kept);
+    }
+
+    /**
+     * The distinct method sorts the first boards of an array and drops the repeats.
+     * @param boards The boards.
+     * @param count The number of boards to keep.
+     * @return The sorted distinct boards.
+     */
+    private static long[] distinct(long[] boards, int count) {
+        Arrays.sort(boards, 0, count);
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            if (kept == 0 || boards[kept - 1] != boards[i])
+                boards[kept++] = boards[i];
+        }
+        return Arrays.copyOf(boards, kept);
+    }
+
+    /**
+     * The solve method searches every board, each worker thread taking the next board until all
+     * are searched.
+     * @param boards The boards to search.
+     * @return The best move of every board.
+     * @throws IllegalStateException if a search throws, with that exception as the cause.
+     */
+    private byte[] solve(long[] boards) {
+        byte[] moves = new byte[boards.length];
+        AtomicInteger next = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            ArrayList<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                workers.add(pool.submit(() -> {
+                    for (int i = next.getAndIncrement(); i < boards.length; i = next.getAndIncrement())
+                        moves[i] = (byte) search.search(boards[i], depth).move;
+                }));
+            }
+            for (Future<?> worker : workers)
+                worker.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while building the book", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A search failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        return moves;
+    }
+}
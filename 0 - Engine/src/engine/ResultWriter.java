@@ -0,0 +1,153 @@
+package engine;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * The ResultWriter class writes the results of the BFS milestone in the 2048_out.txt format: one
+ * line per test case with the maximum score and the moves of its path, separated by commas, for
+ * example "60,L,U,L". Like the milestone, lines are separated by the line separator of the system
+ * and the last line has none.
+ * All lines go through one byte buffer into one stream that stays open until the writer is
+ * closed, and scores and moves are written as bytes, so writing a result costs no file opening
+ * and no strings.
+ */
+public final class ResultWriter implements Closeable, Flushable {
+
+    // bytes written to the stream at a time
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    // the longest line of the BFS: a score of 10 digits, its comma and 2 bytes per move of the deepest path
+    private static final int MAX_LINE = 11 + 2 * LookaheadBfs.MAX_DEPTH;
+
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+
+    private final OutputStream out;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+
+    // number of results written so far
+    private long written;
+
+    /**
+     * Creates a writer over a stream.
+     * @param out The stream of the file, closed with the writer.
+     */
+    public ResultWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    /**
+     * The create method creates or truncates a result file.
+     * @param file The file to write in the 2048_out.txt format.
+     * @return A writer at the start of the file.
+     * @throws IOException if the file cannot be created.
+     */
+    public static ResultWriter create(Path file) throws IOException {
+        return new ResultWriter(Files.newOutputStream(file));
+    }
+
+    /**
+     * The write method writes the result of the next test case.
+     * @param score The maximum cumulated score.
+     * @param letters The moves of the path, one letter each.
+     * @throws IOException if the stream fails.
+     */
+    public void write(int score, CharSequence letters) throws IOException {
+        startLine(score);
+        for (int i = 0; i < letters.length(); i++) {
+            if (i > 0)
+                put(',');
+            put(letters.charAt(i));
+        }
+    }
+
+    /**
+     * The write method writes a result of the BFS.
+     * @param result The maximum score and its path.
+     * @throws IOException if the stream fails.
+     */
+    public void write(LookaheadBfs.Result result) throws IOException {
+        startLine(result.maxScore);
+        for (int i = 0; i < result.length; i++) {
+            if (i > 0)
+                put(',');
+            put(Bitboard.MOVE_LETTERS[result.move(i)]);
+        }
+    }
+
+    /**
+     * The count method returns the number of results written.
+     * @return The number of lines written so far.
+     */
+    public long count() {
+        return written;
+    }
+
+    /**
+     * The startLine method separates the line from the previous one and adds the score and its
+     * comma. The buffer is written out first if the line might not fit, so the digits of the
+     * score are never split across two writes.
+     */
+    private void startLine(int score) throws IOException {
+        if (position + LINE_SEPARATOR.length + MAX_LINE > BUFFER_SIZE)
+            flushBuffer();
+        if (written++ > 0) {
+            for (byte b : LINE_SEPARATOR)
+                put(b);
+        }
+        putNumber(score);
+        put(',');
+    }
+
+    /**
+     * The put method adds one byte to the buffer, writing the buffer out when it is full.
+     */
+    private void put(int b) throws IOException {
+        if (position == BUFFER_SIZE)
+            flushBuffer();
+        buffer[position++] = (byte) b;
+    }
+
+    /**
+     * The putNumber method adds the decimal digits of a score, never negative, to the buffer.
+     */
+    private void putNumber(int number) throws IOException {
+        int start = position;
+        do {
+            put('0' + number % 10);
+            number /= 10;
+        } while (number > 0);
+        // the digits were added from the lowest one, put them in order
+        for (int i = start, j = position - 1; i < j; i++, j--) {
+            byte digit = buffer[i];
+            buffer[i] = buffer[j];
+            buffer[j] = digit;
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        out.write(buffer, 0, position);
+        position = 0;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flushBuffer();
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package engine;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * The SearchAllocation program checks that a search on the calling thread allocates nothing per
+ * node once it is warmed up. It searches the boards of the BoardCorpus until the JIT has compiled
+ * the search, then searches boards of the corpus at a growing depth until one search visits at
+ * least one million nodes, and reads the bytes allocated by the thread around that search with
+ * com.sun.management.ThreadMXBean. A search may allocate its result and its context, a handful of
+ * small objects, but nothing that grows with the number of nodes; more than MAX_BYTES is reported
+ * as a failure with exit status 1.
+ * Arguments: "-nodes N" the smallest search to measure (1000000 by default), "minimax" to measure
+ * the minimizer instead of expectimax, "-tt MB" to search with a transposition table and
+ * "-symmetric" to make that table symmetric, which also checks the lookups of Symmetry.
+ * The same run with -Xlog:gc shows no collection during the measured search.
+ */
+public final class SearchAllocation {
+
+    // the most a warmed up search may allocate, whatever its number of nodes
+    public static final long MAX_BYTES = 1024;
+
+    private SearchAllocation() {
+    }
+
+    public static void main(String[] args) {
+        long minNodes = 1_000_000;
+        SearchEngine.Mode mode = SearchEngine.Mode.EXPECTIMAX;
+        int megabytes = 0;
+        boolean symmetric = false;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-nodes"))
+                minNodes = Long.parseLong(args[++i]);
+            else if (args[i].equalsIgnoreCase("minimax"))
+                mode = SearchEngine.Mode.MINIMAX;
+            else if (args[i].equals("-tt"))
+                megabytes = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-symmetric"))
+                symmetric = true;
+        }
+        if (symmetric && megabytes == 0)
+            megabytes = 64;
+        TranspositionTable table = megabytes > 0 ? new TranspositionTable(megabytes, symmetric) : null;
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!threads.isThreadAllocatedMemorySupported()) {
+            System.out.println("This JVM does not count the bytes allocated by a thread.");
+            return;
+        }
+        threads.setThreadAllocatedMemoryEnabled(true);
+        long thread = Thread.currentThread().getId();
+
+        SearchEngine engine = new SearchEngine(mode, Evaluator.MERGE_SCORE, table);
+        long[] boards = BoardCorpus.boards();
+
+        // warm up until the search is compiled
+        for (int round = 0; round < 20; round++) {
+            for (long board : boards)
+                engine.search(board, 3);
+        }
+
+        // find a board and depth with enough nodes, measuring every search on the way
+        SearchResult result = null;
+        long bytes = 0;
+        for (int depth = 3; depth <= SearchEngine.MAX_DEPTH && (result == null || result.nodes < minNodes); depth += 2) {
+            for (int i = 0; i < boards.length && (result == null || result.nodes < minNodes); i++) {
+                if (table != null)
+                    table.clear();
+                long before = threads.getThreadAllocatedBytes(thread);
+                result = engine.search(boards[i], depth);
+                bytes = threads.getThreadAllocatedBytes(thread) - before;
+            }
+        }
+
+        System.out.println(String.format("%s search of %,d nodes to depth %d allocated %,d bytes (%.6f bytes per node)",
+                mode, result.nodes, result.depth, bytes, (double) bytes / result.nodes));
+        if (bytes > MAX_BYTES) {
+            System.out.println("The search allocates per node: more than " + MAX_BYTES + " bytes.");
+            System.exit(1);
+        }
+        System.out.println("The search allocates nothing per node.");
+    }
+}
@@ -0,0 +1,919 @@
+package engine;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * The SearchEngine class is the recursive game tree search used by the minimax milestones. The
+ * player is the maximizer and picks one of the four moves. The computer then puts a 2 or 4 in an
+ * empty cell: in MINIMAX mode it picks the location which causes the minimum possible score, in
+ * EXPECTIMAX mode every empty location is averaged, a 2 weighted 0.9 and a 4 weighted 0.1.
+ * Depth is counted like the milestones do: depth 3 means maximizer, minimizer and maximizer again,
+ * depth 5 adds one more minimizer and maximizer, and so on. The value of a move is the score of
+ * the move plus the value of the board it leads to, and the last maximizer scores its moves with
+ * the Evaluator.
+ * A search can be limited by a wall clock budget: iterativeDeepening searches depth 1, 3, 5 and so
+ * on, and returns the best move of the deepest search that finished in time.
+ * In MINIMAX mode the search prunes with alpha-beta: every node gets the window of values that can
+ * still change the decision above it, and stops searching its children once its value is outside
+ * that window. The player moves are searched best first, the best move remembered for the board
+ * first and then by the Evaluator value of the board after the move, so the cutoffs come early.
+ * The root still returns the same move and value as a search without pruning, the first of equal
+ * moves in the order left, right, up, down. The nodes visited and the children pruned are counted.
+ * In EXPECTIMAX mode the search can stop expanding unlikely paths: every node carries the chance
+ * of the tiles placed on the path to it and the number of 4s among them, and a maximizer whose
+ * chance is below minProbability, or whose path placed more than maxFours 4s, scores its moves
+ * with the Evaluator as if it were the last maximizer. Both are off unless given.
+ * With a TranspositionTable, the value and best move of every maximizer node are remembered and a
+ * board met again at the same depth is not expanded again. A value found outside of the window of
+ * its node is only a bound, and is stored as one. A value with a cut path below it is not stored:
+ * it is worth less than a full search of the board, which a more likely path to it would get.
+ * With a ForkJoinPool, the four moves of the root are searched as parallel tasks, and so are the
+ * children of every computer turn with at least SPLIT_PLIES player moves left below it. The engine
+ * keeps no state that changes during a search, so one engine can also run many searches at once.
+ * Only the moves that change the board are searched, the others are found with the row tables of
+ * Bitboard without being made.
+ * The children of every node are generated by Successors into one frame per level of a scratch
+ * stack, which every thread keeps from one search to the next, so after the first search a search
+ * on the calling thread allocates nothing per node. A parallel task borrows a scratch stack of the
+ * thread that runs it, so the pool threads keep theirs from one task to the next as well.
+ */
+public final class SearchEngine {
+
+    /**
+     * The Mode enum selects what the computer does between two player moves.
+     */
+    public enum Mode {
+        // the new tile goes to the worst location for the player
+        MINIMAX,
+        // the new tile goes to every location, weighted by its chance
+        EXPECTIMAX
+    }
+
+    // the deepest depth search and iterativeDeepening accept; the scratch stack and the
+    // SearchMetrics counters are sized for it
+    public static final int MAX_DEPTH = 31;
+
+    // chance of a new tile being a 2 or a 4 in the expectimax chance node
+    public static final double PROBABILITY_OF_2 = 0.9;
+    public static final double PROBABILITY_OF_4 = 0.1;
+
+    // the clock is read once every this many nodes (must be a power of two)
+    private static final long CLOCK_CHECK_INTERVAL = 1024;
+
+    // computer turns with at least this many player moves below them fork a task per child,
+    // smaller subtrees are too cheap to pay for a task
+    public static final int SPLIT_PLIES = 3;
+
+    // what the computer does between two player moves
+    private final Mode mode;
+
+    // scores the leaves of the search
+    private final Evaluator evaluator;
+
+    // remembers searched boards, null to search without one
+    private final TranspositionTable table;
+
+    // runs the parallel tasks, null to search on the calling thread only
+    private final ForkJoinPool pool;
+
+    // in EXPECTIMAX mode, a maximizer reached with a smaller chance than this, or after more
+    // 4s than this, is searched as the last maximizer
+    private final double minProbability;
+    private final int maxFours;
+
+    /**
+     * Creates a search without a transposition table.
+     * @param mode MINIMAX or EXPECTIMAX.
+     * @param evaluator Scores the leaves of the search.
+     */
+    public SearchEngine(Mode mode, Evaluator evaluator) {
+        this(mode, evaluator, null, null);
+    }
+
+    /**
+     * Creates a search on the calling thread.
+     * @param mode MINIMAX or EXPECTIMAX.
+     * @param evaluator Scores the leaves of the search.
+     * @param table Remembers searched boards, null to search without one. A table must only
+     *              be shared by searches with the same mode and evaluator.
+     */
+    public SearchEngine(Mode mode, Evaluator evaluator, TranspositionTable table) {
+        this(mode, evaluator, table, null);
+    }
+
+    /**
+     * Creates a search.
+     * @param mode MINIMAX or EXPECTIMAX.
+     * @param evaluator Scores the leaves of the search, it is called from the pool threads.
+     * @param table Remembers searched boards, null to search without one. A table must only
+     *              be shared by searches with the same mode and evaluator.
+     * @param pool Runs the root moves and large computer turns as parallel tasks, null to
+     *             search on the calling thread only.
+     */
+    public SearchEngine(Mode mode, Evaluator evaluator, TranspositionTable table, ForkJoinPool pool) {
+        this(mode, evaluator, table, pool, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Creates a search that stops expanding unlikely paths in EXPECTIMAX mode.
+     * @param mode MINIMAX or EXPECTIMAX.
+     * @param evaluator Scores the leaves of the search, it is called from the pool threads.
+     * @param table Remembers searched boards, null to search without one. A table must only
+     *              be shared by searches with the same mode, evaluator and cutoffs.
+     * @param pool Runs the root moves and large computer turns as parallel tasks, null to
+     *             search on the calling thread only.
+     * @param minProbability A maximizer reached with a smaller chance is searched as the last
+     *                       maximizer, 0 to expand every path.
+     * @param maxFours A maximizer reached after more 4s than this is searched as the last
+     *                 maximizer, Integer.MAX_VALUE for no limit.
+     */
+    public SearchEngine(Mode mode, Evaluator evaluator, TranspositionTable table, ForkJoinPool pool,
+                        double minProbability, int maxFours) {
+        this.mode = mode;
+        this.evaluator = evaluator;
+        this.table = table;
+        this.pool = pool;
+        this.minProbability = minProbability;
+        this.maxFours = maxFours;
+    }
+
+    /**
+     * The transpositionTable method returns the table of this search.
+     * @return The table, or null if the search has none.
+     */
+    public TranspositionTable transpositionTable() {
+        return table;
+    }
+
+    /**
+     * The search method searches the board to a fixed depth.
+     * @param board The packed board before the player moves.
+     * @param depth The search depth, 1 is only the player move, 3 is maximizer, minimizer,
+     *              maximizer. Even depths are searched like the next odd depth.
+     * @return The best move and its value.
+     * @throws IllegalArgumentException if the depth is above MAX_DEPTH.
+     */
+    public SearchResult search(long board, int depth) {
+        checkDepth(depth);
+        long start = SearchMetrics.ENABLED ? System.nanoTime() : 0;
+        Context context = new Context(Long.MAX_VALUE, plies(depth));
+        SearchResult result = root(board, plies(depth), context);
+        if (SearchMetrics.ENABLED)
+            SearchMetrics.record(board, result, context.layers, context.hits, context.misses, System.nanoTime() - start);
+        return result;
+    }
+
+    /**
+     * The iterativeDeepening method searches depth 1, 3, 5 and so on until the time budget runs
+     * out or maxDepth is searched. A search that runs out of time is thrown away, the result of
+     * the deepest search that finished is returned. Depth 1 is always searched completely, so
+     * there is always a move to play.
+     * @param board The packed board before the player moves.
+     * @param maxDepth The deepest search to try.
+     * @param budgetNanos The wall clock budget for this move, in nanoseconds.
+     * @return The best move of the deepest finished search.
+     * @throws IllegalArgumentException if the depth is above MAX_DEPTH.
+     */
+    public SearchResult iterativeDeepening(long board, int maxDepth, long budgetNanos) {
+        checkDepth(maxDepth);
+        long start = System.nanoTime();
+        long deadline = start + budgetNanos;
+        long nodes = 0;
+        long pruned = 0;
+        // adds up the metrics of every depth searched, only kept when they are collected
+        Context total = SearchMetrics.ENABLED ? new Context(Long.MAX_VALUE, plies(maxDepth)) : null;
+
+        Context first = new Context(Long.MAX_VALUE, 1);
+        SearchResult best = root(board, 1, first);
+        nodes += best.nodes;
+        pruned += best.pruned;
+        if (SearchMetrics.ENABLED)
+            total.add(first);
+
+        for (int plies = 2; plies <= plies(maxDepth) && System.nanoTime() < deadline; plies++) {
+            Context context = new Context(deadline, plies);
+            SearchResult result = root(board, plies, context);
+            nodes += context.nodes;
+            pruned += context.pruned;
+            if (SearchMetrics.ENABLED)
+                total.add(context);
+            if (context.timedOut())
+                break;
+            best = result;
+        }
+
+        SearchResult result = new SearchResult(best.move, best.value, best.depth, nodes, pruned);
+        if (SearchMetrics.ENABLED)
+            SearchMetrics.record(board, result, total.layers, total.hits, total.misses, System.nanoTime() - start);
+        return result;
+    }
+
+    /**
+     * The root method is the maximizer at depth 1, it keeps the index of the best move.
+     * In case of draw, the first move in the order left, right, up, down is kept.
+     * @param board The packed board before the player moves.
+     * @param plies Number of player moves to search.
+     * @param context The clock and node counter of this search.
+     * @return The best move and its value.
+     */
+    private SearchResult root(long board, int plies, Context context) {
+        context.scratch = Scratch.acquire();
+        try {
+            return rootMoves(board, plies, context);
+        } finally {
+            context.scratch.release();
+        }
+    }
+
+    /**
+     * The rootMoves method searches the moves of the root with the scratch stack of the context.
+     * @param board The packed board before the player moves.
+     * @param plies Number of player moves to search.
+     * @param context The clock, node counter and scratch stack of this search.
+     * @return The best move and its value.
+     */
+    private SearchResult rootMoves(long board, int plies, Context context) {
+        context.nodes++;
+        if (SearchMetrics.ENABLED)
+            context.layers[0]++;
+        long entry = 0;
+        if (table != null) {
+            // the best move kept for a board that ends the game does not change it
+            entry = table.find(board, plies, context.scratch.found);
+            if (SearchMetrics.ENABLED)
+                context.countLookup(entry);
+            if (TranspositionTable.isFound(entry) && TranspositionTable.bound(entry) == TranspositionTable.EXACT
+                    && (Bitboard.legalMoves(board) & (1 << TranspositionTable.bestMove(entry))) != 0)
+                return new SearchResult(TranspositionTable.bestMove(entry), context.scratch.found[0],
+                        plies * 2 - 1, context.nodes, context.pruned);
+        }
+
+        // value of each move, searched as 4 parallel tasks when there is a pool. A move that
+        // does not change the board gets no new tile, so playing it would give the same board
+        // back and the game would never end: it is only chosen when no move changes the board
+        double[] values = context.scratch.values;
+        if (pool != null && plies > 1) {
+            pool.invoke(new RootTask(board, plies, context, values));
+        } else {
+            int frame = plies * Successors.FRAME;
+            long[] boards = context.scratch.boards;
+            int[] scores = context.scratch.scores;
+            int[] order = context.scratch.order;
+            int legal = Successors.moves(board, boards, scores, frame, plies * 4);
+            int count = order(board, legal, plies, entry, context);
+            for (int move = 0; move < 4; move++)
+                values[move] = Double.NEGATIVE_INFINITY;
+
+            // a move only needs an exact value if it can beat the best so far, and a move left
+            // of the best also wins a tie, so its window starts just below the best
+            double best = Double.NEGATIVE_INFINITY;
+            int bestIndex = 0;
+            for (int i = 0; i < count; i++) {
+                int move = order[plies * 4 + i];
+                double alpha = move < bestIndex ? Math.nextDown(best) : best;
+                values[move] = moveValue(boards[frame + move], scores[plies * 4 + move], plies,
+                        alpha, Double.POSITIVE_INFINITY, context);
+                if (values[move] > best || (values[move] == best && move < bestIndex)) {
+                    best = values[move];
+                    bestIndex = move;
+                }
+            }
+        }
+
+        double max = Double.NEGATIVE_INFINITY;
+        int maxIndex = 0;
+        for (int move = 0; move < 4; move++) {
+            if (values[move] > max) {
+                max = values[move];
+                maxIndex = move;
+            }
+        }
+
+        if (table != null && !context.timedOut() && !context.cut)
+            table.store(board, plies, max, maxIndex);
+        return new SearchResult(maxIndex, max, plies * 2 - 1, context.nodes, context.pruned);
+    }
+
+    /**
+     * The maximizerValue method runs one maximizer node without a clock or a shared
+     * counter, so benchmarks can measure it on its own.
+     * @param board The packed board before the player moves.
+     * @param plies Number of player moves to search, at least 1.
+     * @return The maximum value.
+     */
+    double maximizerValue(long board, int plies) {
+        Context context = new Context(Long.MAX_VALUE, plies);
+        context.scratch = Scratch.acquire();
+        try {
+            return maximizer(board, plies, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, context);
+        } finally {
+            context.scratch.release();
+        }
+    }
+
+    /**
+     * The computerTurnValue method runs one minimizer node, or chance node in expectimax
+     * mode, without a clock or a shared counter, so benchmarks can measure it on its own.
+     * @param board The packed board after the player move.
+     * @param plies Number of player moves left to search below it, at least 1.
+     * @return The minimum or expected value.
+     */
+    double computerTurnValue(long board, int plies) {
+        Context context = new Context(Long.MAX_VALUE, plies);
+        context.scratch = Scratch.acquire();
+        try {
+            return mode == Mode.MINIMAX
+                    ? minimizer(board, plies, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, context)
+                    : chance(board, plies, context);
+        } finally {
+            context.scratch.release();
+        }
+    }
+
+    /**
+     * The maximizer method returns the value of the best of the moves that change the board.
+     * A move that does not change the board is not a move of the game, it gets no new tile, so
+     * it is skipped. A board where no move changes the board ends the game, its value is the
+     * evaluator value of the board as it is.
+     * The value is exact when it is between alpha and beta. Once a move reaches beta the other
+     * moves are not searched and the value is only a bound the board is at least; when no move
+     * gets above alpha the value is only a bound the board is at most.
+     * In EXPECTIMAX mode, a board reached on a path too unlikely to expand scores its moves with
+     * the Evaluator; its value is not kept in the table, since the same board is worth a deeper
+     * search on a more likely path, and neither is the value of any board above it.
+     * @param board The packed board before the player moves.
+     * @param plies Number of player moves left to search, at least 1.
+     * @param alpha The value the player is sure to get elsewhere, below it only a bound is needed.
+     * @param beta The value the computer is sure to hold the player to elsewhere, above it only a
+     *             bound is needed.
+     * @param context The clock and node counter of this search.
+     * @return The maximum value.
+     */
+    private double maximizer(long board, int plies, double alpha, double beta, Context context) {
+        if ((++context.nodes & (CLOCK_CHECK_INTERVAL - 1)) == 0)
+            context.checkClock();
+        if (SearchMetrics.ENABLED)
+            context.layers[context.plies - plies]++;
+        if (context.timedOut())
+            return 0;
+
+        // a board already searched to this depth is not expanded again, unless its value is
+        // a bound that does not answer this window
+        long entry = 0;
+        if (table != null) {
+            entry = table.find(board, plies, context.scratch.found);
+            if (SearchMetrics.ENABLED)
+                context.countLookup(entry);
+            if (TranspositionTable.isFound(entry)) {
+                double value = context.scratch.found[0];
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT || (bound == TranspositionTable.LOWER && value >= beta)
+                        || (bound == TranspositionTable.UPPER && value <= alpha))
+                    return value;
+            }
+        }
+
+        // the 4 children go in the frame of this level, the levels below use their own frames
+        int frame = plies * Successors.FRAME;
+        long[] boards = context.scratch.boards;
+        int[] scores = context.scratch.scores;
+        int[] order = context.scratch.order;
+        int legal = Successors.moves(board, boards, scores, frame, plies * 4);
+        if (legal == 0)
+            return evaluator.evaluate(board, 0);
+        int count = order(board, legal, plies, entry, context);
+
+        // a path too unlikely to expand ends at this maximizer. The flag of the context is
+        // cleared for the moves of this node, so it tells if a path below this node was cut
+        boolean cut = plies > 1 && (context.probability < minProbability || context.fours > maxFours);
+        int searchPlies = plies;
+        if (cut) {
+            context.pruned += count;
+            searchPlies = 1;
+        }
+        boolean cutAbove = context.cut;
+        context.cut = false;
+
+        double max = Double.NEGATIVE_INFINITY;
+        int maxIndex = 0;
+        for (int i = 0; i < count; i++) {
+            int move = order[plies * 4 + i];
+            double value = moveValue(boards[frame + move], scores[plies * 4 + move], searchPlies,
+                    Math.max(alpha, max), beta, context);
+            if (value > max) {
+                max = value;
+                maxIndex = move;
+            }
+            if (max >= beta) {
+                context.pruned += count - i - 1;
+                break;
+            }
+        }
+
+        // a search that ran out of time returns made up values, and a search with a cut path
+        // returns a value worth less than a full search, they are not kept
+        cut |= context.cut;
+        context.cut = cutAbove || cut;
+        if (table != null && !context.timedOut() && !cut) {
+            int bound = max <= alpha ? TranspositionTable.UPPER
+                    : max >= beta ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+            table.store(board, plies, max, maxIndex, bound);
+        }
+        return max;
+    }
+
+    /**
+     * The order method writes the moves of a maximizer in the order they are searched, at
+     * plies * 4 in the order array of the scratch stack. In MINIMAX mode, when the moves have
+     * subtrees below them, the best move of the board in the transposition table comes first (of
+     * this depth, or of the depth before it, as iterative deepening left it) and the others
+     * follow by the Evaluator value of the board after them, the first of equal moves first.
+     * Otherwise the moves are searched left, right, up, down.
+     * @param board The packed board before the player moves.
+     * @param legal The moves that change the board, with their children already in the frame.
+     * @param plies Number of player moves left to search.
+     * @param entry The data long of the board at this depth, or 0.
+     * @param context The scratch stack of this search.
+     * @return Number of moves written.
+     */
+    private int order(long board, int legal, int plies, long entry, Context context) {
+        int[] order = context.scratch.order;
+        int first = plies * 4;
+        int count = 0;
+        if (mode != Mode.MINIMAX || plies == 1) {
+            for (int move = 0; move < 4; move++) {
+                if ((legal & (1 << move)) != 0)
+                    order[first + count++] = move;
+            }
+            return count;
+        }
+
+        int tableMove = -1;
+        if (TranspositionTable.isFound(entry))
+            tableMove = TranspositionTable.bestMove(entry);
+        else if (table != null)
+            tableMove = table.findMove(board, plies - 1);
+
+        // insertion sort on the values, larger first, the table move above all of them
+        double[] keys = context.scratch.keys;
+        int frame = plies * Successors.FRAME;
+        for (int move = 0; move < 4; move++) {
+            if ((legal & (1 << move)) == 0)
+                continue;
+            double key = move == tableMove ? Double.POSITIVE_INFINITY
+                    : evaluator.evaluate(context.scratch.boards[frame + move], context.scratch.scores[first + move]);
+            int i = count++;
+            while (i > 0 && keys[first + i - 1] < key) {
+                keys[first + i] = keys[first + i - 1];
+                order[first + i] = order[first + i - 1];
+                i--;
+            }
+            keys[first + i] = key;
+            order[first + i] = move;
+        }
+        return count;
+    }
+
+    /**
+     * The moveValue method returns the value of one move: the evaluator value at the last
+     * maximizer, otherwise the score of the move plus the value of the computer turn after it.
+     * The window of the computer turn is the window of the move less the score of the move.
+     * @param child The packed board after the move.
+     * @param score The score of the merges made by the move.
+     * @param plies Number of player moves left to search, including this one.
+     * @param alpha The low end of the window of the move, used in MINIMAX mode.
+     * @param beta The high end of the window of the move, used in MINIMAX mode.
+     * @param context The clock and node counter of this search.
+     * @return The value of the move.
+     */
+    private double moveValue(long child, int score, int plies, double alpha, double beta, Context context) {
+        if (plies == 1)
+            return evaluator.evaluate(child, score);
+        if (mode == Mode.MINIMAX)
+            return score + minimizer(child, plies - 1, alpha - score, beta - score, context);
+        return score + chance(child, plies - 1, context);
+    }
+
+    /**
+     * The minimizer method puts a 2 and a 4 in every empty cell and returns the
+     * minimum of the maximizer values. Once a child gets down to alpha the other children
+     * are not searched, the value is then a bound the board is at most.
+     * @param board The packed board after the player move.
+     * @param plies Number of player moves left to search.
+     * @param alpha The value the player is sure to get elsewhere.
+     * @param beta The value the computer is sure to hold the player to elsewhere.
+     * @param context The clock and node counter of this search.
+     * @return The minimum value.
+     */
+    private double minimizer(long board, int plies, double alpha, double beta, Context context) {
+
+        // a full board gets no new tile, so the maximizer plays it as it is
+        if (Bitboard.emptyMask(board) == 0)
+            return maximizer(board, plies, alpha, beta, context);
+
+        // the parallel children all get the window of this node, none waits for the others
+        if (splits(plies)) {
+            double min = Double.POSITIVE_INFINITY;
+            for (double value : spawnValues(board, plies, alpha, beta, context))
+                min = Math.min(min, value);
+            return min;
+        }
+
+        // the children go after the 4 player children in the frame of this level
+        int first = plies * Successors.FRAME + Successors.SPAWNS;
+        long[] boards = context.scratch.boards;
+        int count = Successors.spawns(board, boards, first);
+        double min = Double.POSITIVE_INFINITY;
+        for (int i = first; i < first + count; i++) {
+            min = Math.min(min, maximizer(boards[i], plies, alpha, Math.min(beta, min), context));
+            if (min <= alpha) {
+                context.pruned += first + count - i - 1;
+                break;
+            }
+        }
+        return min;
+    }
+
+    /**
+     * The chance method puts a 2 and a 4 in every empty cell and returns the average
+     * of the maximizer values, a 2 weighted 0.9 and a 4 weighted 0.1. Every child carries the
+     * chance of its path, the chance of this node times the chance of its tile in its cell, and
+     * the number of 4s placed on its path.
+     * @param board The packed board after the player move.
+     * @param plies Number of player moves left to search.
+     * @param context The clock and node counter of this search.
+     * @return The expected value.
+     */
+    private double chance(long board, int plies, Context context) {
+
+        // a full board gets no new tile, so the maximizer plays it as it is
+        int emptyCells = Bitboard.countEmpty(board);
+        if (emptyCells == 0)
+            return maximizer(board, plies, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, context);
+
+        // every empty cell is equally likely to get the new tile
+        double sum = 0;
+        if (splits(plies)) {
+            double[] values = spawnValues(board, plies, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, context);
+            // added in the same order as below, so both give the same sum to the last bit
+            for (int i = 0; i < values.length; i += 2) {
+                sum += PROBABILITY_OF_2 * values[i];
+                sum += PROBABILITY_OF_4 * values[i + 1];
+            }
+            return sum / emptyCells;
+        }
+
+        // the children go after the 4 player children in the frame of this level, a 2 and
+        // then a 4 in every empty cell
+        int first = plies * Successors.FRAME + Successors.SPAWNS;
+        long[] boards = context.scratch.boards;
+        int count = Successors.spawns(board, boards, first);
+        double probability = context.probability;
+        int fours = context.fours;
+        for (int i = first; i < first + count; i += 2) {
+            context.probability = probability * PROBABILITY_OF_2 / emptyCells;
+            sum += PROBABILITY_OF_2 * maximizer(boards[i], plies, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, context);
+            context.probability = probability * PROBABILITY_OF_4 / emptyCells;
+            context.fours = fours + 1;
+            sum += PROBABILITY_OF_4 * maximizer(boards[i + 1], plies, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, context);
+            context.fours = fours;
+        }
+        context.probability = probability;
+        return sum / emptyCells;
+    }
+
+    /**
+     * The splits method checks if a computer turn forks a task per child.
+     * @param plies Number of player moves left below the computer turn.
+     * @return true if the children are searched as parallel tasks.
+     */
+    private boolean splits(int plies) {
+        return pool != null && plies >= SPLIT_PLIES && ForkJoinTask.inForkJoinPool();
+    }
+
+    /**
+     * The spawnValues method searches the children of a computer turn as parallel tasks,
+     * a 2 and then a 4 in every empty cell.
+     * @param board The packed board after the player move, with at least one empty cell.
+     * @param plies Number of player moves left to search.
+     * @param alpha The low end of the window of every child.
+     * @param beta The high end of the window of every child.
+     * @param context The clock and node counter of this search.
+     * @return The maximizer values, the 2 and the 4 of each empty cell next to each other.
+     */
+    private double[] spawnValues(long board, int plies, double alpha, double beta, Context context) {
+        int emptyCells = Bitboard.countEmpty(board);
+        SpawnTask[] tasks = new SpawnTask[emptyCells * 2];
+        int count = 0;
+        for (int index = 0; index < 16; index++) {
+            if (Bitboard.getExponent(board, index) == 0) {
+                Context two = context.fork();
+                two.probability = context.probability * PROBABILITY_OF_2 / emptyCells;
+                Context four = context.fork();
+                four.probability = context.probability * PROBABILITY_OF_4 / emptyCells;
+                four.fours = context.fours + 1;
+                tasks[count++] = new SpawnTask(Bitboard.setExponent(board, index, 1), plies, alpha, beta, two);
+                tasks[count++] = new SpawnTask(Bitboard.setExponent(board, index, 2), plies, alpha, beta, four);
+            }
+        }
+        ForkJoinTask.invokeAll(tasks);
+
+        double[] values = new double[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = tasks[i].join();
+            context.add(tasks[i].context);
+        }
+        return values;
+    }
+
+    /**
+     * The plies method converts a depth counted like the milestones into the number of
+     * player moves: depth 1 is 1 move, depth 3 is 2 moves, depth 5 is 3 moves.
+     * @param depth The search depth.
+     * @return Number of player moves, at least 1.
+     */
+    private static int plies(int depth) {
+        return Math.max(1, (depth + 1) / 2);
+    }
+
+    /**
+     * The checkDepth method rejects a depth deeper than the search and its metrics are sized for.
+     * @param depth The search depth.
+     * @throws IllegalArgumentException if the depth is above MAX_DEPTH.
+     */
+    static void checkDepth(int depth) {
+        if (depth > MAX_DEPTH)
+            throw new IllegalArgumentException("depth must be at most " + MAX_DEPTH + ": " + depth);
+    }
+
+    /**
+     * The Context class holds the clock, the node counter and the scratch stack of one search,
+     * and the chance and number of 4s of the path to the node being searched, so the
+     * SearchEngine itself has no state that changes during a search. Every parallel task gets
+     * its own context with its own node counter, starting from the path of the task that forked
+     * it; all of them share the clock of the search. The scratch stack is borrowed from the
+     * thread that runs the search or the task, and given back when it is done.
+     * When SearchMetrics are collected, it also counts the maximizer nodes of every player move
+     * from the root and the transposition table lookups that found their board or not.
+     */
+    private static final class Context {
+        // the deadline of the whole search
+        final Clock clock;
+
+        // the frames of the levels of the search, borrowed from the thread that runs it
+        Scratch scratch;
+
+        // number of player moves of the whole search
+        final int plies;
+
+        // maximizer nodes visited at every player move from the root, null without metrics
+        final long[] layers;
+
+        // number of table lookups that found their board and that did not, with metrics
+        long hits;
+        long misses;
+
+        // number of maximizer nodes visited by this context
+        long nodes;
+
+        // number of children of its nodes this context did not search after a cutoff
+        long pruned;
+
+        // chance of the tiles placed on the path to the current node, and how many were 4s
+        double probability = 1;
+        int fours;
+
+        // true once a path too unlikely to expand was cut below the current maximizer
+        boolean cut;
+
+        Context(long deadline, int plies) {
+            this(new Clock(deadline), plies);
+        }
+
+        private Context(Clock clock, int plies) {
+            this.clock = clock;
+            this.plies = plies;
+            this.layers = SearchMetrics.ENABLED ? new long[plies] : null;
+        }
+
+        // a new context for a parallel task, with the same clock. The task borrows a scratch
+        // stack when it runs, from the thread that runs it
+        Context fork() {
+            Context context = new Context(clock, plies);
+            context.probability = probability;
+            context.fours = fours;
+            return context;
+        }
+
+        // adds the counters of a finished task, or of a search of a smaller depth
+        void add(Context other) {
+            nodes += other.nodes;
+            pruned += other.pruned;
+            cut |= other.cut;
+            if (SearchMetrics.ENABLED) {
+                for (int layer = 0; layer < other.layers.length; layer++)
+                    layers[layer] += other.layers[layer];
+                hits += other.hits;
+                misses += other.misses;
+            }
+        }
+
+        // counts a lookup of the transposition table
+        void countLookup(long entry) {
+            if (TranspositionTable.isFound(entry))
+                hits++;
+            else
+                misses++;
+        }
+
+        void checkClock() {
+            if (System.nanoTime() > clock.deadline)
+                clock.timedOut = true;
+        }
+
+        boolean timedOut() {
+            return clock.timedOut;
+        }
+    }
+
+    /**
+     * The Scratch class holds the frames of the levels of a search: for every number of player
+     * moves left, the 4 player children, their scores and their search order, and the computer
+     * children. Every thread keeps a list of them from one search to the next. A search or a
+     * parallel task borrows the first one of its thread that is free: usually there is one per
+     * thread, but a pool thread waiting for a task may run another task meanwhile, which takes
+     * the next one, so a thread only ever makes as many as it has searches running at once.
+     */
+    private static final class Scratch {
+        // the first scratch stack of every thread, kept from one search to the next
+        private static final ThreadLocal<Scratch> THREAD_SCRATCH = new ThreadLocal<>();
+
+        // the largest number of player moves the frames have room for
+        static final int PLIES = plies(MAX_DEPTH);
+
+        // the next scratch stack of the same thread, and true while a search uses this one
+        private Scratch next;
+        private boolean borrowed;
+
+        // the children of every level, Successors.FRAME boards per level
+        final long[] boards;
+
+        // the scores of the player children of every level, 4 per level
+        final int[] scores;
+
+        // the order the player children of every level are searched in, and the values they
+        // are sorted by, 4 per level
+        final int[] order;
+        final double[] keys;
+
+        // the values of the 4 moves of the root
+        final double[] values = new double[4];
+
+        // the value of the last board found in the transposition table
+        final double[] found = new double[1];
+
+        private Scratch(Scratch next) {
+            this.next = next;
+            this.boards = new long[(PLIES + 1) * Successors.FRAME];
+            this.scores = new int[(PLIES + 1) * 4];
+            this.order = new int[(PLIES + 1) * 4];
+            this.keys = new double[(PLIES + 1) * 4];
+        }
+
+        // borrows a free scratch stack of the calling thread, made when all of them are in use
+        static Scratch acquire() {
+            Scratch first = THREAD_SCRATCH.get();
+            for (Scratch scratch = first; scratch != null; scratch = scratch.next) {
+                if (!scratch.borrowed) {
+                    scratch.borrowed = true;
+                    return scratch;
+                }
+            }
+            Scratch scratch = new Scratch(first);
+            THREAD_SCRATCH.set(scratch);
+            scratch.borrowed = true;
+            return scratch;
+        }
+
+        // gives the scratch stack back to its thread
+        void release() {
+            borrowed = false;
+        }
+    }
+
+    /**
+     * The Clock class holds the deadline shared by all tasks of one search.
+     */
+    private static final class Clock {
+        // System.nanoTime after which the search gives up
+        final long deadline;
+
+        // true once any task has seen the deadline pass
+        volatile boolean timedOut;
+
+        Clock(long deadline) {
+            this.deadline = deadline;
+        }
+    }
+
+    /**
+     * The RootTask class searches the four moves of the root as parallel tasks.
+     */
+    private final class RootTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final long board;
+        private final int plies;
+        private final Context context;
+        private final double[] values;
+
+        RootTask(long board, int plies, Context context, double[] values) {
+            this.board = board;
+            this.plies = plies;
+            this.context = context;
+            this.values = values;
+        }
+
+        @Override
+        protected void compute() {
+            ArrayList<MoveTask> tasks = new ArrayList<>(4);
+            int legal = Bitboard.legalMoves(board);
+            for (int move = 0; move < 4; move++) {
+                values[move] = Double.NEGATIVE_INFINITY;
+                if ((legal & (1 << move)) != 0)
+                    tasks.add(new MoveTask(board, move, plies, context.fork()));
+            }
+            ForkJoinTask.invokeAll(tasks);
+            for (MoveTask task : tasks) {
+                values[task.move] = task.join();
+                context.add(task.context);
+            }
+        }
+    }
+
+    /**
+     * The MoveTask class finds the exact value of one move of the root, with no window, since
+     * the other moves are searched at the same time.
+     */
+    private final class MoveTask extends RecursiveTask<Double> {
+        private static final long serialVersionUID = 1L;
+
+        private final long board;
+        private final int move;
+        private final int plies;
+        private final Context context;
+
+        MoveTask(long board, int move, int plies, Context context) {
+            this.board = board;
+            this.move = move;
+            this.plies = plies;
+            this.context = context;
+        }
+
+        @Override
+        protected Double compute() {
+            context.scratch = Scratch.acquire();
+            try {
+                return moveValue(Bitboard.move(board, move), Bitboard.moveScore(board, move), plies,
+                        Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, context);
+            } finally {
+                context.scratch.release();
+            }
+        }
+    }
+
+    /**
+     * The SpawnTask class finds the maximizer value of one child of a computer turn.
+     */
+    private final class SpawnTask extends RecursiveTask<Double> {
+        private static final long serialVersionUID = 1L;
+
+        private final long board;
+        private final int plies;
+        private final double alpha;
+        private final double beta;
+        private final Context context;
+
+        SpawnTask(long board, int plies, double alpha, double beta, Context context) {
+            this.board = board;
+            this.plies = plies;
+            this.alpha = alpha;
+            this.beta = beta;
+            this.context = context;
+        }
+
+        @Override
+        protected Double compute() {
+            context.scratch = Scratch.acquire();
+            try {
+                return maximizer(board, plies, alpha, beta, context);
+            } finally {
+                context.scratch.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package engine;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+/**
+ * The SearchMetrics class collects what every decision of a SearchEngine cost: the time of the
+ * search, the depth it reached, the maximizer nodes it visited at every player move from the
+ * root, the children it pruned and the lookups of the transposition table that found their board.
+ * Metrics are off unless the program is started with -Dengine.metrics=true. The flag is a static
+ * final field, so when it is off the JIT removes every check of it from the search and the search
+ * costs exactly what it did without metrics. With -Dengine.metrics.json=FILE every decision is
+ * also written to FILE as one JSON object per line, with the board it was made on, so a slow move
+ * can be found and searched again; the file is flushed when the program ends.
+ * With iterative deepening, the nodes of a layer add up every depth the decision searched.
+ * All searches of a program, on all threads, add to the same counters. summary returns them as a
+ * table: the percentiles of the time and nodes of a decision are the upper ends of power of two
+ * buckets, the mean and max are exact.
+ */
+public final class SearchMetrics {
+
+    // true when the program was started with -Dengine.metrics=true
+    public static final boolean ENABLED = Boolean.getBoolean("engine.metrics");
+
+    // the file every decision is written to, null for none
+    private static final String JSON_FILE = System.getProperty("engine.metrics.json");
+
+    // the percentiles shown by the summary
+    private static final int[] REPORTED_PERCENTILES = {50, 90, 99};
+
+    // number of power of two buckets of a histogram, enough for any long
+    private static final int BUCKETS = 64;
+
+    // number of player moves of the deepest search
+    private static final int LAYERS = (SearchEngine.MAX_DEPTH + 1) / 2;
+
+    // holds the number of decisions and the sums of their counters
+    private static long decisions;
+    private static long nodes;
+    private static long pruned;
+    private static long nanos;
+    private static long hits;
+    private static long misses;
+
+    // holds the sum of the branching factors of the decisions that searched more than one move
+    private static double branchingSum;
+    private static long branchingCount;
+
+    // holds the largest time and node count of a decision
+    private static long maxNanos;
+    private static long maxNodes;
+
+    // holds the decisions by the power of two bucket of their time in microseconds and of their nodes
+    private static final long[] timeHistogram = new long[BUCKETS];
+    private static final long[] nodeHistogram = new long[BUCKETS];
+
+    // holds the decisions by the depth they reached
+    private static final long[] depthCounts = new long[SearchEngine.MAX_DEPTH + 1];
+
+    // holds the maximizer nodes visited at every player move from the root, 0 is the root
+    private static final long[] layerNodes = new long[LAYERS];
+
+    // writes the decisions, opened on the first one
+    private static BufferedWriter json;
+
+    private SearchMetrics() {
+    }
+
+    /**
+     * The record method adds one decision to the counters, and writes it to the JSON file.
+     * @param board The packed board the decision was made on.
+     * @param result The result of the search.
+     * @param layers The maximizer nodes visited at every player move from the root.
+     * @param tableHits The lookups of the transposition table that found their board.
+     * @param tableMisses The lookups of the transposition table that did not.
+     * @param elapsedNanos The time of the search in nanoseconds.
+     */
+    static synchronized void record(long board, SearchResult result, long[] layers, long tableHits,
+                                    long tableMisses, long elapsedNanos) {
+        decisions++;
+        nodes += result.nodes;
+        pruned += result.pruned;
+        nanos += elapsedNanos;
+        hits += tableHits;
+        misses += tableMisses;
+        maxNanos = Math.max(maxNanos, elapsedNanos);
+        maxNodes = Math.max(maxNodes, result.nodes);
+        timeHistogram[bucket(elapsedNanos / 1000)]++;
+        nodeHistogram[bucket(result.nodes)]++;
+        depthCounts[result.depth]++;
+        for (int layer = 0; layer < layers.length; layer++)
+            layerNodes[layer] += layers[layer];
+        double branching = branching(layers);
+        if (branching > 0) {
+            branchingSum += branching;
+            branchingCount++;
+        }
+
+        if (JSON_FILE != null)
+            writeJson(board, result, layers, branching, tableHits, tableMisses, elapsedNanos);
+    }
+
+    /**
+     * The branching method measures how many maximizer nodes every player move adds: the
+     * geometric mean of the ratios of the nodes of a layer to the nodes of the layer above it.
+     * @param layers The maximizer nodes visited at every player move from the root.
+     * @return The mean branching factor, 0 for a search of one player move.
+     */
+    static double branching(long[] layers) {
+        int last = layers.length - 1;
+        while (last > 0 && layers[last] == 0)
+            last--;
+        if (last == 0 || layers[0] == 0)
+            return 0;
+        return Math.pow((double) layers[last] / layers[0], 1.0 / last);
+    }
+
+    /**
+     * The summary method returns the counters of all the decisions so far as a table.
+     * @return The table, one line per counter.
+     */
+    public static synchronized String summary() {
+        StringBuilder summary = new StringBuilder();
+        double seconds = nanos / 1e9;
+        summary.append(String.format("Search metrics: %d decisions, %d nodes in %.2f s (%.0f nodes/s), %d pruned%n",
+                decisions, nodes, seconds, seconds == 0 ? 0 : nodes / seconds, pruned));
+        if (decisions == 0)
+            return summary.toString();
+        summary.append(String.format("  %-12s", ""));
+        for (int percent : REPORTED_PERCENTILES)
+            summary.append(String.format(" %12s", "p" + percent));
+        summary.append(String.format(" %12s %12s%n", "mean", "max"));
+        summary.append(row("time (us)", timeHistogram, nanos / 1e3 / decisions, maxNanos / 1000));
+        summary.append(row("nodes", nodeHistogram, (double) nodes / decisions, maxNodes));
+
+        summary.append("  depth reached:");
+        for (int depth = 1; depth < depthCounts.length; depth++) {
+            if (depthCounts[depth] > 0)
+                summary.append(String.format("  %d: %d", depth, depthCounts[depth]));
+        }
+        summary.append(System.lineSeparator()).append("  nodes per layer:");
+        for (int layer = 0; layer < LAYERS && layerNodes[layer] > 0; layer++)
+            summary.append(String.format("  %d: %d", layer + 1, layerNodes[layer]));
+        summary.append(String.format(" (mean branching %.1f)%n", branchingCount == 0 ? 0 : branchingSum / branchingCount));
+        long lookups = hits + misses;
+        summary.append(String.format("  table lookups: %d hits, %d misses (%.1f%% hit rate)%n",
+                hits, misses, lookups == 0 ? 0 : 100.0 * hits / lookups));
+        return summary.toString();
+    }
+
+    /**
+     * The row method formats one histogram as a row of the summary.
+     * @return The name, the percentiles, the mean and the max.
+     */
+    private static String row(String name, long[] histogram, double mean, long max) {
+        StringBuilder row = new StringBuilder(String.format("  %-12s", name));
+        for (int percent : REPORTED_PERCENTILES) {
+            long rank = (long) Math.ceil(percent / 100.0 * decisions);
+            long seen = 0;
+            int bucket = 0;
+            while (seen + histogram[bucket] < rank)
+                seen += histogram[bucket++];
+            row.append(String.format(" %12s", "<" + (1L << Math.min(bucket, 62))));
+        }
+        row.append(String.format(Locale.ROOT, " %12.1f %12d%n", mean, max));
+        return row.toString();
+    }
+
+    /**
+     * The bucket method finds the power of two bucket of a value: bucket b holds the values
+     * from 2^(b-1) to 2^b - 1, and bucket 0 holds 0.
+     * @param value A value, at least 0.
+     * @return The bucket number.
+     */
+    private static int bucket(long value) {
+        return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(value));
+    }
+
+    /**
+     * The writeJson method writes one decision to the JSON file as one line.
+     */
+    private static void writeJson(long board, SearchResult result, long[] layers, double branching,
+                                  long tableHits, long tableMisses, long elapsedNanos) {
+        StringBuilder line = new StringBuilder(256);
+        line.append("{\"decision\":").append(decisions)
+                .append(",\"thread\":\"").append(Thread.currentThread().getName())
+                .append("\",\"board\":\"").append(String.format("%016x", board))
+                .append("\",\"empty\":").append(Bitboard.countEmpty(board))
+                .append(",\"maxTile\":").append(Bitboard.maxTile(board))
+                .append(",\"move\":\"").append(Bitboard.MOVE_LETTERS[result.move])
+                .append("\",\"value\":").append(Double.isFinite(result.value) ? Double.toString(result.value) : "null")
+                .append(",\"depth\":").append(result.depth)
+                .append(",\"nanos\":").append(elapsedNanos)
+                .append(",\"nodes\":").append(result.nodes)
+                .append(",\"nodesPerSecond\":").append(elapsedNanos == 0 ? 0 : result.nodes * 1_000_000_000L / elapsedNanos)
+                .append(",\"pruned\":").append(result.pruned)
+                .append(",\"tableHits\":").append(tableHits)
+                .append(",\"tableMisses\":").append(tableMisses)
+                .append(",\"branching\":").append(String.format(Locale.ROOT, "%.3f", branching))
+                .append(",\"layers\":[");
+        for (int layer = 0; layer < layers.length && layers[layer] > 0; layer++)
+            line.append(layer == 0 ? "" : ",").append(layers[layer]);
+        line.append("]}").append(System.lineSeparator());
+        try {
+            if (json == null) {
+                json = Files.newBufferedWriter(Paths.get(JSON_FILE), StandardCharsets.UTF_8);
+                Runtime.getRuntime().addShutdownHook(new Thread(SearchMetrics::close));
+            }
+            json.write(line.toString());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write the metrics to " + JSON_FILE, e);
+        }
+    }
+
+    /**
+     * The close method flushes and closes the JSON file, when the program ends.
+     */
+    private static synchronized void close() {
+        if (json == null)
+            return;
+        try {
+            json.close();
+        } catch (IOException e) {
+            System.err.println("Cannot close the metrics file " + JSON_FILE + ": " + e.getMessage());
+        }
+        json = null;
+    }
+}
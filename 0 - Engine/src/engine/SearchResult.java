@@ -0,0 +1,39 @@
+package engine;
+
+/**
+ * The SearchResult class holds the outcome of one search: the move to play, its value and
+ * the depth the value was searched to.
+ */
+public final class SearchResult {
+
+    // the chosen move, LEFT, RIGHT, UP or DOWN
+    public final int move;
+
+    // the value of the chosen move
+    public final double value;
+
+    // the depth of the last completed search, counted like the milestones do
+    // (depth 3 is maximizer, minimizer, maximizer)
+    public final int depth;
+
+    // number of maximizer nodes visited to find this result
+    public final long nodes;
+
+    // number of children not searched after an alpha-beta cutoff, or because the path to them
+    // was too unlikely
+    public final long pruned;
+
+    SearchResult(int move, double value, int depth, long nodes, long pruned) {
+        this.move = move;
+        this.value = value;
+        this.depth = depth;
+        this.nodes = nodes;
+        this.pruned = pruned;
+    }
+
+    @Override
+    public String toString() {
+        return Bitboard.MOVE_LETTERS[move] + " value=" + value + " depth=" + depth + " nodes=" + nodes
+                + " pruned=" + pruned;
+    }
+}
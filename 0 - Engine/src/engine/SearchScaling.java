@@ -0,0 +1,116 @@
+package engine;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * The SearchScaling program measures how the parallel search scales with the number of threads.
+ * It searches every board of the BoardCorpus to a fixed depth, first on the calling thread and
+ * then on ForkJoinPools of 1, 2, 4, ... threads, and prints the time, speedup and efficiency of
+ * each thread count. Without a transposition table every run must choose the same moves with the
+ * same values as the serial one, and in expectimax mode visit the same nodes; a run that does not
+ * is reported as a mismatch. In minimax mode the parallel tasks search without the alpha-beta
+ * window of the moves searched at the same time, so they visit more nodes than the serial search.
+ * Arguments: "-depth N" (5 by default), "-threads N" the largest thread count (the number of
+ * processors, and at least 4, by default), "-rounds N" timed rounds per thread count (3 by
+ * default, the fastest is reported) and "minimax" to measure the minimizer instead of expectimax.
+ */
+public final class SearchScaling {
+
+    private SearchScaling() {
+    }
+
+    public static void main(String[] args) {
+        int depth = 5;
+        int maxThreads = Math.max(4, Runtime.getRuntime().availableProcessors());
+        int rounds = 3;
+        SearchEngine.Mode mode = SearchEngine.Mode.EXPECTIMAX;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-depth"))
+                depth = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-threads"))
+                maxThreads = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-rounds"))
+                rounds = Integer.parseInt(args[++i]);
+            else if (args[i].equalsIgnoreCase("minimax"))
+                mode = SearchEngine.Mode.MINIMAX;
+        }
+
+        long[] boards = BoardCorpus.boards();
+        System.out.println(String.format("%s depth %d on %d boards, %d processors available",
+                mode, depth, boards.length, Runtime.getRuntime().availableProcessors()));
+
+        // the serial search is the baseline of the speedup and of the moves
+        SearchEngine serial = new SearchEngine(mode, Evaluator.MERGE_SCORE);
+        SearchResult[] expected = new SearchResult[boards.length];
+        long serialNanos = time(serial, boards, depth, rounds, expected);
+        long nodes = 0;
+        long pruned = 0;
+        for (SearchResult result : expected) {
+            nodes += result.nodes;
+            pruned += result.pruned;
+        }
+        System.out.println(String.format("serial search: %,d nodes visited, %,d children pruned", nodes, pruned));
+        System.out.println(String.format("%-8s %10s %12s %8s %11s", "threads", "time (ms)", "nodes/s", "speedup", "efficiency"));
+        System.out.println(String.format("%-8s %10.1f %12.0f %8s %11s", "serial", serialNanos / 1e6,
+                nodes / (serialNanos / 1e9), "1.00", "-"));
+
+        ArrayList<Integer> threadCounts = new ArrayList<>();
+        for (int threads = 1; threads < maxThreads; threads *= 2)
+            threadCounts.add(threads);
+        threadCounts.add(maxThreads);
+
+        for (int threads : threadCounts) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            SearchEngine parallel = new SearchEngine(mode, Evaluator.MERGE_SCORE, null, pool);
+            SearchResult[] results = new SearchResult[boards.length];
+            long nanos = time(parallel, boards, depth, rounds, results);
+            pool.shutdown();
+
+            double speedup = (double) serialNanos / nanos;
+            System.out.println(String.format("%-8d %10.1f %12.0f %8.2f %10.0f%%%s", threads, nanos / 1e6,
+                    nodes / (nanos / 1e9), speedup, 100 * speedup / threads, mismatch(expected, results, mode)));
+        }
+    }
+
+    /**
+     * The time method searches every board once to warm up, then times the given number of
+     * rounds over all the boards.
+     * @param engine The search to time.
+     * @param boards The packed boards.
+     * @param depth The search depth.
+     * @param rounds Number of timed rounds.
+     * @param results Filled with the result of each board.
+     * @return The time of the fastest round in nanoseconds.
+     */
+    private static long time(SearchEngine engine, long[] boards, int depth, int rounds, SearchResult[] results) {
+        for (long board : boards)
+            engine.search(board, depth);
+
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < rounds; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < boards.length; i++)
+                results[i] = engine.search(boards[i], depth);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+
+    /**
+     * The mismatch method compares the results of a parallel run with the serial ones.
+     * @param expected The serial results.
+     * @param results The parallel results.
+     * @param mode The mode of the search, node counts are only compared in expectimax mode.
+     * @return An empty string if every move, value and node count is the same, or a note.
+     */
+    private static String mismatch(SearchResult[] expected, SearchResult[] results, SearchEngine.Mode mode) {
+        int different = 0;
+        for (int i = 0; i < expected.length; i++) {
+            if (expected[i].move != results[i].move || expected[i].value != results[i].value
+                    || (mode == SearchEngine.Mode.EXPECTIMAX && expected[i].nodes != results[i].nodes))
+                different++;
+        }
+        return different == 0 ? "" : "   mismatch on " + different + " boards";
+    }
+}
@@ -0,0 +1,51 @@
+package engine;
+
+/**
+ * The SearchStrategy class plays the move chosen by a SearchEngine, searching every move to a
+ * fixed depth, or as deep as a time budget allows with iterative deepening.
+ */
+public final class SearchStrategy implements Strategy {
+
+    // the search used to choose every move
+    private final SearchEngine search;
+
+    // search depth, 3 means maximizer, minimizer and maximizer again
+    private final int depth;
+
+    // time budget of each move in nanoseconds, 0 searches to depth without a clock
+    private final long timeBudgetNanos;
+
+    /**
+     * Creates a strategy that searches every move to a fixed depth.
+     * @param search The search used to choose every move.
+     * @param depth The search depth, an odd number from 1 to MAX_DEPTH.
+     * @throws IllegalArgumentException if the depth is above MAX_DEPTH.
+     */
+    public SearchStrategy(SearchEngine search, int depth) {
+        this(search, depth, 0);
+    }
+
+    /**
+     * Creates a strategy.
+     * @param search The search used to choose every move.
+     * @param depth The search depth, or the largest depth when there is a time budget.
+     * @param timeBudgetNanos Time budget of each move in nanoseconds, 0 for none.
+     * @throws IllegalArgumentException if the depth is above MAX_DEPTH.
+     */
+    public SearchStrategy(SearchEngine search, int depth, long timeBudgetNanos) {
+        SearchEngine.checkDepth(depth);
+        this.search = search;
+        this.depth = depth;
+        this.timeBudgetNanos = timeBudgetNanos;
+    }
+
+    @Override
+    public int chooseMove(GameSession session) {
+        SearchResult result;
+        if (timeBudgetNanos > 0)
+            result = search.iterativeDeepening(session.board(), depth, timeBudgetNanos);
+        else
+            result = search.search(session.board(), depth);
+        return result.move;
+    }
+}
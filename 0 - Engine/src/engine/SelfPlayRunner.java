@@ -0,0 +1,131 @@
+package engine;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The SelfPlayRunner class plays many games of one strategy on a pool of threads and collects
+ * their results into SelfPlayStats. Every worker thread takes the next game number until all
+ * games are played, so slow and fast games even out across the threads. Game number i always
+ * gets the same random generator for the same seed, so a run can be repeated game by game, no
+ * matter how many threads play it, as long as the strategy does not depend on the clock or on the
+ * order the games search a shared symmetric table in. Games can also start from the boards of a board file instead
+ * of from two random 2s. Given a TraceWriter, every game is appended to a trace file with its seed
+ * when it ends.
+ * The strategy is shared by all the threads, so it must keep no state of its own game.
+ */
+public final class SelfPlayRunner {
+
+    // spreads the seeds of consecutive games apart
+    private static final long SEED_STEP = 0x9E3779B97F4A7C15L;
+
+    // chooses the moves of every game
+    private final Strategy strategy;
+
+    // number of games played at the same time
+    private final int threads;
+
+    // appends the trace of every game, null to keep no traces
+    private final TraceWriter traces;
+
+    /**
+     * Creates a runner.
+     * @param strategy Chooses the moves of every game, shared by all the threads.
+     * @param threads Number of games played at the same time, at least 1.
+     */
+    public SelfPlayRunner(Strategy strategy, int threads) {
+        this(strategy, threads, null);
+    }
+
+    /**
+     * Creates a runner that keeps the trace of every game.
+     * @param strategy Chooses the moves of every game, shared by all the threads.
+     * @param threads Number of games played at the same time, at least 1.
+     * @param traces Appends the trace of every game, shared by all the threads, null for none.
+     */
+    public SelfPlayRunner(Strategy strategy, int threads, TraceWriter traces) {
+        this.strategy = strategy;
+        this.threads = Math.max(1, threads);
+        this.traces = traces;
+    }
+
+    /**
+     * The run method plays the games and waits for all of them.
+     * @param games Number of games to play.
+     * @param seed Seed of the first game, game i is seeded from seed and i.
+     * @return The statistics of all the games.
+     * @throws IllegalStateException if a game throws, with that exception as the cause.
+     */
+    public SelfPlayStats run(int games, long seed) {
+        return run(games, null, seed);
+    }
+
+    /**
+     * The run method plays one game from every board and waits for all of them.
+     * @param boards The packed boards the games start from, for example from BoardFile.readAll.
+     * @param seed Seed of the first game, game i is seeded from seed and i.
+     * @return The statistics of all the games, in the order of the boards.
+     * @throws IllegalStateException if a game throws, with that exception as the cause.
+     */
+    public SelfPlayStats run(long[] boards, long seed) {
+        return run(boards.length, boards, seed);
+    }
+
+    private SelfPlayStats run(int games, long[] boards, long seed) {
+        int[] scores = new int[games];
+        int[] maxExponents = new int[games];
+        AtomicInteger next = new AtomicInteger();
+
+        long start = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            ArrayList<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                workers.add(pool.submit(() -> {
+                    for (int game = next.getAndIncrement(); game < games; game = next.getAndIncrement()) {
+                        long gameSeed = seed + game * SEED_STEP;
+                        GameSession session = boards == null ? new GameSession(gameSeed)
+                                : new GameSession(boards[game], new SplittableRandom(gameSeed));
+                        GameTrace trace = traces != null ? new GameTrace(session.board(), gameSeed) : null;
+                        session.play(strategy, trace);
+                        if (trace != null)
+                            append(trace);
+                        scores[game] = session.score();
+                        maxExponents[game] = Bitboard.maxExponent(session.board());
+                    }
+                }));
+            }
+            for (Future<?> worker : workers)
+                worker.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Self-play was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A self-play game failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+
+        return new SelfPlayStats(scores, maxExponents, System.nanoTime() - start);
+    }
+
+    /**
+     * The append method appends the trace of a finished game.
+     * @param trace The trace of the game.
+     * @throws UncheckedIOException if the trace file fails, which stops the batch.
+     */
+    private void append(GameTrace trace) {
+        try {
+            traces.append(trace);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot append to the trace file", e);
+        }
+    }
+}
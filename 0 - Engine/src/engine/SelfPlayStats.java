@@ -0,0 +1,123 @@
+package engine;
+
+import java.util.Arrays;
+
+/**
+ * The SelfPlayStats class holds the results of a batch of games played by the SelfPlayRunner:
+ * the win rate, the score percentiles, how often each max tile was reached and how many games
+ * were played per second.
+ */
+public final class SelfPlayStats {
+
+    // the percentiles of the score shown by the report
+    private static final int[] REPORTED_PERCENTILES = {10, 25, 50, 75, 90, 99};
+
+    // the final score of every game, sorted
+    private final int[] sortedScores;
+
+    // number of games that ended with each max tile, indexed by its log2
+    private final int[] maxTileCounts = new int[Bitboard.MAX_EXPONENT + 1];
+
+    // number of games that reached 2048
+    private final int wins;
+
+    // wall-clock time of the whole batch
+    private final long elapsedNanos;
+
+    /**
+     * Creates the statistics of a batch.
+     * @param scores The final score of every game.
+     * @param maxExponents The log2 of the max tile of every game.
+     * @param elapsedNanos Wall-clock time of the whole batch in nanoseconds.
+     */
+    SelfPlayStats(int[] scores, int[] maxExponents, long elapsedNanos) {
+        this.sortedScores = scores.clone();
+        Arrays.sort(sortedScores);
+        int won = 0;
+        for (int exponent : maxExponents) {
+            maxTileCounts[exponent]++;
+            if ((1 << exponent) >= GameSession.WINNING_TILE)
+                won++;
+        }
+        this.wins = won;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * The games method returns the number of games played.
+     * @return Number of games.
+     */
+    public int games() {
+        return sortedScores.length;
+    }
+
+    /**
+     * The winRate method returns the share of games that reached 2048.
+     * @return A number from 0 to 1.
+     */
+    public double winRate() {
+        return games() == 0 ? 0 : (double) wins / games();
+    }
+
+    /**
+     * The meanScore method returns the average final score.
+     * @return The mean score.
+     */
+    public double meanScore() {
+        long sum = 0;
+        for (int score : sortedScores)
+            sum += score;
+        return games() == 0 ? 0 : (double) sum / games();
+    }
+
+    /**
+     * The percentile method returns a percentile of the final scores, by nearest rank.
+     * @param percent From 0 to 100, 50 is the median.
+     * @return The score below which the given percent of games ended.
+     */
+    public int percentile(double percent) {
+        if (games() == 0)
+            return 0;
+        int rank = (int) Math.ceil(percent / 100 * games());
+        return sortedScores[Math.min(games() - 1, Math.max(0, rank - 1))];
+    }
+
+    /**
+     * The maxTileCount method returns the number of games that ended with a given max tile.
+     * @param tile The tile value, a power of two.
+     * @return Number of games.
+     */
+    public int maxTileCount(int tile) {
+        return maxTileCounts[Bitboard.exponentOf(tile)];
+    }
+
+    /**
+     * The gamesPerSecond method returns how fast the batch was played.
+     * @return Games per second of wall-clock time.
+     */
+    public double gamesPerSecond() {
+        return elapsedNanos == 0 ? 0 : games() / (elapsedNanos / 1e9);
+    }
+
+    /**
+     * The report method returns all the statistics as text, one value per line.
+     * @return The report.
+     */
+    public String report() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("Games played:   %d in %.1f s (%.1f games/s)%n", games(), elapsedNanos / 1e9, gamesPerSecond()));
+        report.append(String.format("Win rate:       %.2f%% (%d games reached %d)%n", 100 * winRate(), wins, GameSession.WINNING_TILE));
+        report.append(String.format("Mean score:     %.1f%n", meanScore()));
+        report.append("Score percentiles:");
+        for (int percent : REPORTED_PERCENTILES)
+            report.append(String.format("  p%d=%d", percent, percentile(percent)));
+        report.append(String.format("  max=%d%n", games() == 0 ? 0 : sortedScores[games() - 1]));
+        report.append("Max tile distribution:").append(System.lineSeparator());
+        for (int exponent = Bitboard.MAX_EXPONENT; exponent > 0; exponent--) {
+            if (maxTileCounts[exponent] > 0)
+                report.append(String.format("  %6d: %7d games (%.2f%%)%n", 1 << exponent, maxTileCounts[exponent],
+                        100.0 * maxTileCounts[exponent] / games()));
+        }
+        return report.toString();
+    }
+}
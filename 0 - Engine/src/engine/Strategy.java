@@ -0,0 +1,16 @@
+package engine;
+
+/**
+ * The Strategy interface chooses the moves of a game. A strategy keeps no state of
+ * its own game, everything it needs is read from the GameSession, so one strategy
+ * can play many games at the same time.
+ */
+public interface Strategy {
+
+    /**
+     * The chooseMove method picks the next move of a game.
+     * @param session The game to play, it is not over.
+     * @return LEFT, RIGHT, UP or DOWN.
+     */
+    int chooseMove(GameSession session);
+}
@@ -0,0 +1,66 @@
+package engine;
+
+/**
+ * The Successors class generates the children of a board into buffers given by the caller, so a
+ * search can keep one set of primitive arrays for its whole life and generate every node without
+ * allocating. The player children are the boards after the 4 moves in the order left, right, up,
+ * down, with the score of each move. The computer children are the boards with a 2 and then a 4
+ * in every empty cell, in the order of the cells.
+ * A recursive search keeps one frame of FRAME boards per level in one array: the 4 player children
+ * at the start of the frame and the computer children after them, at SPAWNS.
+ */
+public final class Successors {
+
+    // number of player children of a board
+    public static final int MOVES = 4;
+
+    // most computer children of a board: a 2 and a 4 in each of 16 empty cells
+    public static final int MAX_SPAWNS = 32;
+
+    // offset of the computer children in a frame, and size of a frame
+    public static final int SPAWNS = MOVES;
+    public static final int FRAME = MOVES + MAX_SPAWNS;
+
+    private Successors() {
+    }
+
+    /**
+     * The moves method writes the boards after the 4 moves and their scores.
+     * The moves that do not change the board are found with Bitboard.legalMoves and not made.
+     * @param board The packed board before the move.
+     * @param children Receives the boards after left, right, up and down at offset to offset + 3.
+     * @param scores Receives the scores of the moves at scoreOffset to scoreOffset + 3.
+     * @param offset The first index written in children.
+     * @param scoreOffset The first index written in scores.
+     * @return A bitmask of the moves that change the board, bit LEFT, RIGHT, UP or DOWN.
+     */
+    public static int moves(long board, long[] children, int[] scores, int offset, int scoreOffset) {
+        int legal = Bitboard.legalMoves(board);
+        for (int move = 0; move < MOVES; move++) {
+            // a move that does not change the board leaves it as it is and scores nothing
+            boolean changes = (legal & (1 << move)) != 0;
+            children[offset + move] = changes ? Bitboard.move(board, move) : board;
+            scores[scoreOffset + move] = changes ? Bitboard.moveScore(board, move) : 0;
+        }
+        return legal;
+    }
+
+    /**
+     * The spawns method writes the boards with a 2 and then a 4 in every empty cell.
+     * @param board The packed board after the player move.
+     * @param children Receives the boards from offset, 2 per empty cell, up to 32 boards.
+     * @param offset The first index written in children.
+     * @return Number of boards written, twice the number of empty cells.
+     */
+    public static int spawns(long board, long[] children, int offset) {
+        int count = 0;
+        long empty = Bitboard.emptyMask(board);
+        while (empty != 0) {
+            int shift = Long.numberOfTrailingZeros(empty);
+            children[offset + count++] = board | (1L << shift);
+            children[offset + count++] = board | (2L << shift);
+            empty &= empty - 1;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,163 @@
+package engine;
+
+/**
+ * The Symmetry class maps a board to the same board turned or mirrored. The 8 symmetries of the
+ * square (4 rotations, each mirrored or not) give boards with the same moves, merge scores and
+ * tile chances, so they have the same value in any search whose Evaluator only looks at rows and
+ * columns. Symmetry number s is made of three steps, in this order: a transpose if s has bit
+ * value 4, a mirror of the columns (left and right swap) if it has bit value 1, and a flip of the
+ * rows (top and bottom swap) if it has bit value 2; 0 is the board itself.
+ * The canonical board of a board is the smallest of its 8 symmetric boards as a long, so all 8
+ * boards share one key in a table. A move made on a board is the move transformMove gives on the
+ * transformed board, and inverseMove takes a move of the transformed board back to the board.
+ */
+public final class Symmetry {
+
+    // number of symmetries of the square
+    public static final int COUNT = 8;
+
+    // bits of a symmetry number
+    private static final int MIRROR = 1;
+    private static final int FLIP = 2;
+    private static final int TRANSPOSE = 4;
+
+    // for every symmetry and move, the move on the transformed board, and the move back
+    private static final int[] MOVES = new int[COUNT * 4];
+    private static final int[] INVERSE_MOVES = new int[COUNT * 4];
+
+    static {
+        for (int symmetry = 0; symmetry < COUNT; symmetry++) {
+            for (int move = 0; move < 4; move++) {
+                int moved = move;
+                if ((symmetry & TRANSPOSE) != 0)
+                    moved = moved ^ 2;
+                if ((symmetry & MIRROR) != 0 && moved < Bitboard.UP)
+                    moved = moved ^ 1;
+                if ((symmetry & FLIP) != 0 && moved >= Bitboard.UP)
+                    moved = moved ^ 1;
+                MOVES[symmetry * 4 + move] = moved;
+                INVERSE_MOVES[symmetry * 4 + moved] = move;
+            }
+        }
+    }
+
+    private Symmetry() {
+    }
+
+    /**
+     * The transform method returns the board after one of the 8 symmetries.
+     * @param board The packed board.
+     * @param symmetry The symmetry number, 0 to 7.
+     * @return The transformed board.
+     */
+    public static long transform(long board, int symmetry) {
+        if ((symmetry & TRANSPOSE) != 0)
+            board = Bitboard.transpose(board);
+        if ((symmetry & MIRROR) != 0)
+            board = mirror(board);
+        if ((symmetry & FLIP) != 0)
+            board = flip(board);
+        return board;
+    }
+
+    /**
+     * The mirror method swaps the columns of the board, cell (row, col) moves to (row, 3 - col).
+     * @param board The packed board.
+     * @return The mirrored board.
+     */
+    public static long mirror(long board) {
+        board = ((board & 0x0F0F0F0F0F0F0F0FL) << 4) | ((board >>> 4) & 0x0F0F0F0F0F0F0F0FL);
+        return ((board & 0x00FF00FF00FF00FFL) << 8) | ((board >>> 8) & 0x00FF00FF00FF00FFL);
+    }
+
+    /**
+     * The flip method swaps the rows of the board, cell (row, col) moves to (3 - row, col).
+     * @param board The packed board.
+     * @return The flipped board.
+     */
+    public static long flip(long board) {
+        return (board >>> 48) | ((board >>> 16) & 0x00000000FFFF0000L)
+                | ((board << 16) & 0x0000FFFF00000000L) | (board << 48);
+    }
+
+    /**
+     * The canonical method returns the smallest of the 8 symmetric boards of the board.
+     * @param board The packed board.
+     * @return The canonical board, the same for all 8 symmetric boards.
+     */
+    public static long canonical(long board) {
+        long mirrored = mirror(board);
+        long transposed = Bitboard.transpose(board);
+        long transposedMirrored = mirror(transposed);
+        long min = Math.min(Math.min(board, mirrored), Math.min(flip(board), flip(mirrored)));
+        return Math.min(min, Math.min(Math.min(transposed, transposedMirrored),
+                Math.min(flip(transposed), flip(transposedMirrored))));
+    }
+
+    /**
+     * The canonicalSymmetry method finds the symmetry that turns the board into its canonical
+     * board, the first one if several give it.
+     * @param board The packed board.
+     * @return The symmetry number, 0 to 7.
+     */
+    public static int canonicalSymmetry(long board) {
+        // the 8 boards in the order of their symmetry numbers, the first smallest one is kept.
+        // The minimum is kept as it goes, without an array, since every lookup of a symmetric
+        // table calls this and the search must not allocate per node
+        long mirrored = mirror(board);
+        long transposed = Bitboard.transpose(board);
+        long transposedMirrored = mirror(transposed);
+        long min = board;
+        int symmetry = 0;
+        if (mirrored < min) {
+            min = mirrored;
+            symmetry = MIRROR;
+        }
+        long candidate = flip(board);
+        if (candidate < min) {
+            min = candidate;
+            symmetry = FLIP;
+        }
+        candidate = flip(mirrored);
+        if (candidate < min) {
+            min = candidate;
+            symmetry = FLIP | MIRROR;
+        }
+        if (transposed < min) {
+            min = transposed;
+            symmetry = TRANSPOSE;
+        }
+        if (transposedMirrored < min) {
+            min = transposedMirrored;
+            symmetry = TRANSPOSE | MIRROR;
+        }
+        candidate = flip(transposed);
+        if (candidate < min) {
+            min = candidate;
+            symmetry = TRANSPOSE | FLIP;
+        }
+        if (flip(transposedMirrored) < min)
+            symmetry = TRANSPOSE | FLIP | MIRROR;
+        return symmetry;
+    }
+
+    /**
+     * The transformMove method maps a move of a board to the same move of the transformed board.
+     * @param symmetry The symmetry number, 0 to 7.
+     * @param move LEFT, RIGHT, UP or DOWN on the board.
+     * @return The move on the transformed board.
+     */
+    public static int transformMove(int symmetry, int move) {
+        return MOVES[symmetry * 4 + move];
+    }
+
+    /**
+     * The inverseMove method maps a move of the transformed board back to the board.
+     * @param symmetry The symmetry number, 0 to 7.
+     * @param move LEFT, RIGHT, UP or DOWN on the transformed board.
+     * @return The move on the board.
+     */
+    public static int inverseMove(int symmetry, int move) {
+        return INVERSE_MOVES[symmetry * 4 + move];
+    }
+}
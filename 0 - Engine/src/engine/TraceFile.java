@@ -0,0 +1,79 @@
+package engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * The TraceFile class describes the binary format of game traces, written by TraceWriter and
+ * read by TraceReader. A trace file only grows: every finished game is appended as one record, so
+ * games played at the same time on many threads never mix, and a file cut short by a crash loses
+ * at most its last game. All fixed size numbers are big endian, and a varint is an unsigned
+ * number written 7 bits per byte, the lowest bits first, with the top bit set on every byte but
+ * the last:
+ * - a header of 8 bytes: the magic number "TRAC" in ASCII, the version (2 bytes) and 2 bytes that
+ *   are 0;
+ * - one record per game: its length in bytes (4 bytes, not counting itself), the flags (1 byte,
+ *   SEEDED if the seed of the game is known), the seed (8 bytes), the start board (8 bytes), the
+ *   number of turns (varint), every turn, the final board (8 bytes) and the final score (varint);
+ * - a turn is one byte and two varints: the move in bits 0-1, SPAWNED in bit 2 if a tile was
+ *   added after the move, FOUR in bit 3 if that tile was a 4 and its cell in bits 4-7, then the
+ *   score of the move and the time the strategy took to choose it, in microseconds.
+ * The board before every turn is not stored: it is the start board with the moves and tiles of
+ * the turns before it, which the replay finds again and checks. A turn is 3 to 4 bytes for most
+ * moves, against 8 bytes for a board alone.
+ */
+public final class TraceFile {
+
+    // "TRAC" in ASCII, the first 4 bytes of every trace file
+    public static final int MAGIC = 0x54524143;
+
+    // the version of the format written by TraceWriter
+    public static final short VERSION = 1;
+
+    // bytes of the header, and of the length of a record
+    public static final int HEADER_BYTES = 8;
+    public static final int LENGTH_BYTES = 4;
+
+    // the flag of a game whose seed is known
+    public static final int SEEDED = 0x1;
+
+    // the bits of a turn byte after the move
+    public static final int SPAWNED = 0x4;
+    public static final int FOUR = 0x8;
+
+    // the largest record a reader accepts, far more than the longest game
+    public static final int MAX_RECORD_BYTES = 1 << 26;
+
+    private TraceFile() {
+    }
+
+    /**
+     * The putVarint method writes an unsigned number in as few bytes as it needs.
+     * @param buffer The buffer to write to.
+     * @param value The number, at least 0.
+     */
+    static void putVarint(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    /**
+     * The getVarint method reads a number written by putVarint.
+     * @param buffer The buffer to read from.
+     * @return The number.
+     * @throws IOException if the number does not end within 10 bytes.
+     */
+    static long getVarint(ByteBuffer buffer) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0)
+                return value;
+        }
+        throw new IOException("Not a valid varint");
+    }
+}
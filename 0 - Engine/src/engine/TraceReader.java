@@ -0,0 +1,129 @@
+package engine;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The TraceReader class streams the games of a trace file, with the layout described by
+ * TraceFile. Records are read through one buffer that grows to the largest record, so a file of
+ * millions of games is read one game at a time.
+ */
+public final class TraceReader implements Closeable {
+
+    // bytes read from the file at a time
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final FileChannel channel;
+
+    // the bytes read from the file but not yet decoded
+    private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+    // the position of the next bytes to read from the file
+    private long position;
+
+    // number of games read so far
+    private long games;
+
+    /**
+     * Creates a reader over a channel and reads the header.
+     * @param channel The channel of the file, closed with the reader.
+     * @throws IOException if the channel fails or the file is not a trace file.
+     */
+    public TraceReader(FileChannel channel) throws IOException {
+        this.channel = channel;
+        buffer.limit(0);
+        if (!fill(TraceFile.HEADER_BYTES) || buffer.getInt() != TraceFile.MAGIC)
+            throw new IOException("Not a trace file");
+        short version = buffer.getShort();
+        if (version != TraceFile.VERSION)
+            throw new IOException("Unsupported trace file version " + version);
+        buffer.getShort();
+    }
+
+    /**
+     * The open method opens a trace file for reading.
+     * @param file The trace file.
+     * @return A reader positioned on the first game.
+     * @throws IOException if the file cannot be opened or is not a trace file.
+     */
+    public static TraceReader open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            return new TraceReader(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * The next method reads the next game of the file.
+     * @return The trace of the game, or null after the last game.
+     * @throws IOException if the file fails, a record is not valid or the file ends inside a record.
+     */
+    public GameTrace next() throws IOException {
+        if (!fill(TraceFile.LENGTH_BYTES)) {
+            if (buffer.hasRemaining())
+                throw new EOFException("The trace file ends inside the length of game " + (games + 1));
+            return null;
+        }
+        int length = buffer.getInt();
+        if (length <= 0 || length > TraceFile.MAX_RECORD_BYTES)
+            throw new IOException("Game " + (games + 1) + " has a record of " + length + " bytes");
+        if (!fill(length))
+            throw new EOFException("The trace file ends inside game " + (games + 1));
+
+        ByteBuffer record = buffer.slice();
+        record.limit(length);
+        buffer.position(buffer.position() + length);
+        games++;
+        try {
+            return GameTrace.decode(record);
+        } catch (IOException e) {
+            throw new IOException("Game " + games + " is not valid: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * The games method returns the number of games read so far.
+     * @return Number of games.
+     */
+    public long games() {
+        return games;
+    }
+
+    /**
+     * The fill method makes sure the buffer holds at least the given number of bytes, moving the
+     * bytes left to its start and growing it when it is too small.
+     * @return false if the file ends first.
+     */
+    private boolean fill(int bytes) throws IOException {
+        if (buffer.remaining() >= bytes)
+            return true;
+        if (buffer.capacity() < bytes) {
+            ByteBuffer larger = ByteBuffer.allocate(bytes);
+            larger.put(buffer);
+            buffer = larger;
+        } else {
+            buffer.compact();
+        }
+        while (buffer.position() < bytes) {
+            int n = channel.read(buffer, position);
+            if (n < 0)
+                break;
+            position += n;
+        }
+        buffer.flip();
+        return buffer.remaining() >= bytes;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,112 @@
+package engine;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * The TraceReplay program reads a trace file and replays every game in it with the rules of the
+ * engine (see GameTrace.verify), so a trace that was damaged, or written by a program whose rules
+ * differ, is found. It prints the number of games and turns, the bytes per turn of the file, the
+ * scores and the time the strategies took to choose their moves, and the first turn of every game
+ * that is not a game of the rules. A file cut short inside its last game, as a crash can leave it,
+ * is replayed up to that game. "-game N" also prints every turn of game N (from 1): the board
+ * before it in hex, the move, its score, the tile added and the time taken.
+ * The exit status is 1 if a game does not replay or the file is cut short.
+ * For example: java -cp out engine.TraceReplay games.trace -game 3
+ */
+public final class TraceReplay {
+
+    private TraceReplay() {
+    }
+
+    /**
+     * Replays the games of a trace file.
+     *
+     * @param args The trace file, then "-game N" to print the turns of one game.
+     * @throws IOException if the trace file cannot be read or is not valid.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.out.println("Usage: java engine.TraceReplay FILE [-game N]");
+            return;
+        }
+        Path file = Paths.get(args[0]);
+        long shown = 0;
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("-game"))
+                shown = Long.parseLong(args[++i]);
+        }
+
+        long games = 0;
+        long turns = 0;
+        long failed = 0;
+        long scores = 0;
+        int maxScore = 0;
+        long micros = 0;
+        long maxMicros = 0;
+        long start = System.nanoTime();
+        // the end of a file cut short inside a game, null if it ends after a whole game
+        String cut = null;
+        try (TraceReader reader = TraceReader.open(file)) {
+            for (GameTrace trace = reader.next(); trace != null; trace = reader.next()) {
+                games++;
+                turns += trace.turns();
+                scores += trace.finalScore();
+                maxScore = Math.max(maxScore, trace.finalScore());
+                for (int turn = 0; turn < trace.turns(); turn++) {
+                    micros += trace.decisionMicros(turn);
+                    maxMicros = Math.max(maxMicros, trace.decisionMicros(turn));
+                }
+                if (games == shown)
+                    print(trace, games);
+                String error = trace.verify();
+                if (error != null) {
+                    failed++;
+                    System.out.println("Game " + games + (trace.hasSeed() ? " (seed " + trace.seed() + ")" : "")
+                            + " does not replay: " + error);
+                }
+            }
+        } catch (EOFException e) {
+            cut = e.getMessage();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.println(String.format("Replayed %d games, %d turns in %.2f s (%.0f turns/s)", games, turns,
+                seconds, seconds == 0 ? 0 : turns / seconds));
+        System.out.println(String.format("File: %d bytes, %.2f bytes per turn", Files.size(file),
+                turns == 0 ? 0 : (double) (Files.size(file) - TraceFile.HEADER_BYTES) / turns));
+        if (games > 0) {
+            System.out.println(String.format("Scores: mean %.1f, max %d", (double) scores / games, maxScore));
+            System.out.println(String.format("Decision time: mean %.1f us, max %d us",
+                    turns == 0 ? 0 : (double) micros / turns, maxMicros));
+        }
+        if (cut != null)
+            System.out.println(cut + ", the games before it were replayed.");
+        if (failed > 0)
+            System.out.println(failed + " of " + games + " games do not replay.");
+        if (failed > 0 || cut != null)
+            System.exit(1);
+        System.out.println("All games replay with the rules of the engine.");
+    }
+
+    /**
+     * The print method prints every turn of one game.
+     * @param trace The trace of the game.
+     * @param number The number of the game in the file, from 1.
+     */
+    private static void print(GameTrace trace, long number) {
+        System.out.println("Game " + number + (trace.hasSeed() ? ", seed " + trace.seed() : "") + ", "
+                + trace.turns() + " turns, final score " + trace.finalScore());
+        long[] boards = trace.boards();
+        for (int turn = 0; turn < trace.turns(); turn++) {
+            String spawn = trace.spawnCell(turn) >= 0
+                    ? trace.spawnTile(turn) + " at cell " + trace.spawnCell(turn) : "no tile";
+            System.out.println(String.format("  %5d  %016x  %c  %6d  %-14s %8d us", turn + 1, boards[turn],
+                    Bitboard.MOVE_LETTERS[trace.move(turn)], trace.score(turn), spawn, trace.decisionMicros(turn)));
+        }
+        System.out.println(String.format("  final  %016x", boards[trace.turns()]));
+    }
+}
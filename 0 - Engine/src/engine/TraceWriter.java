@@ -0,0 +1,125 @@
+package engine;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The TraceWriter class appends the traces of finished games to a trace file, with the layout
+ * described by TraceFile. A new file gets the header first; an existing file is checked and the
+ * games are added after the ones it has. If the last record of an existing file was cut short,
+ * for example by a crash while it was written, it is cut off, so the file stays readable. Every
+ * game is written as one record with one write, and append can be called by many threads at once,
+ * so the self-play threads can share one writer.
+ */
+public final class TraceWriter implements Closeable {
+
+    private final FileChannel channel;
+
+    // the position of the end of the last whole record
+    private long position;
+
+    // number of games appended by this writer
+    private long games;
+
+    /**
+     * Creates a writer over a channel, writing the header of an empty file or checking the
+     * header of a file that has one.
+     * @param channel The channel of the file, opened to read and write, closed with the writer.
+     * @throws IOException if the channel fails or the file is not a trace file.
+     */
+    public TraceWriter(FileChannel channel) throws IOException {
+        this.channel = channel;
+        ByteBuffer header = ByteBuffer.allocate(TraceFile.HEADER_BYTES);
+        if (channel.size() == 0) {
+            header.putInt(TraceFile.MAGIC);
+            header.putShort(TraceFile.VERSION);
+            header.putShort((short) 0);
+            header.flip();
+            writeFully(header, 0);
+            position = TraceFile.HEADER_BYTES;
+            return;
+        }
+
+        if (channel.size() < TraceFile.HEADER_BYTES || channel.read(header, 0) < TraceFile.HEADER_BYTES
+                || header.getInt(0) != TraceFile.MAGIC)
+            throw new IOException("Not a trace file");
+        if (header.getShort(4) != TraceFile.VERSION)
+            throw new IOException("Unsupported trace file version " + header.getShort(4));
+
+        // skip the whole records, and cut off a record that ends past the end of the file
+        ByteBuffer length = ByteBuffer.allocate(TraceFile.LENGTH_BYTES);
+        position = TraceFile.HEADER_BYTES;
+        long size = channel.size();
+        while (position + TraceFile.LENGTH_BYTES <= size) {
+            length.clear();
+            if (channel.read(length, position) < TraceFile.LENGTH_BYTES)
+                break;
+            long end = position + TraceFile.LENGTH_BYTES + length.getInt(0);
+            if (length.getInt(0) <= 0 || end > size)
+                break;
+            position = end;
+        }
+        if (position < size)
+            channel.truncate(position);
+    }
+
+    /**
+     * The open method creates a trace file, or opens one to add games to it.
+     * @param file The trace file.
+     * @return A writer positioned after the last game of the file.
+     * @throws IOException if the file cannot be opened or is not a trace file.
+     */
+    public static TraceWriter open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            return new TraceWriter(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * The append method writes the trace of a finished game after the games of the file.
+     * @param trace The trace of the game.
+     * @throws IOException if the file fails.
+     */
+    public synchronized void append(GameTrace trace) throws IOException {
+        ByteBuffer record = trace.encode();
+        int bytes = record.remaining();
+        writeFully(record, position);
+        position += bytes;
+        games++;
+    }
+
+    /**
+     * The games method returns the number of games appended by this writer.
+     * @return Number of games.
+     */
+    public synchronized long games() {
+        return games;
+    }
+
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining())
+            position += channel.write(buffer, position);
+    }
+
+    /**
+     * The close method forces the games to the disk and closes the file.
+     * @throws IOException if the file fails.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            channel.force(false);
+        } finally {
+            channel.close();
+        }
+    }
+}
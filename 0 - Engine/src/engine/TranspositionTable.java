@@ -0,0 +1,336 @@
+package engine;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The TranspositionTable class remembers the value of boards the search has already expanded, so
+ * a board reached again through a different order of moves (for example left then up, and up then
+ * left) is not searched twice. It is a fixed size, open addressed hash table: its memory is set in
+ * megabytes when it is created and never grows.
+ * Each entry holds the board, the depth it was searched to, its value, its best move and the kind
+ * of bound its value is. The value is kept as the double the search found, so a board found in the
+ * table gets the same value as a search of it would, and a table that is not symmetric only saves work:
+ * it never changes the move a search chooses. The value of a move adds up all the merge scores below it, so a value is
+ * only reused for the same board at the same depth. An alpha-beta search stores the value of a node
+ * that was cut off as a LOWER or UPPER bound, which can only answer a search whose window it is
+ * outside of, while its best move still orders the moves of the next search. A board is looked up
+ * in a window of PROBES slots; when the window is full the entry searched to the smallest depth is
+ * replaced, and a new entry never replaces a deeper one.
+ * A symmetric table keys every board by its canonical board (see Symmetry), so the 8 turned and
+ * mirrored images of a board share one entry; the best move is stored as the move of the
+ * canonical board and turned back into the move of the board that is looked up. It must only be
+ * used by searches whose Evaluator gives the same value to all 8 images. Its value may still come
+ * from a search of another image, which adds the same numbers in another order and breaks ties
+ * between moves in another order, so its last bits or the move chosen on a tie can differ.
+ * The table can be shared by the threads of a parallel search without locks: a slot keeps the
+ * board XOR its data long and its value bits instead of the board, so a slot half written by
+ * another thread fails the key check and reads as a miss instead of returning the value of a
+ * different board.
+ */
+public final class TranspositionTable {
+
+    // bytes used by one entry, a key, a data long and a value
+    public static final int ENTRY_BYTES = 24;
+
+    // kinds of value: the exact value, a value the board is at least, a value it is at most
+    public static final int EXACT = 0;
+    public static final int LOWER = 1;
+    public static final int UPPER = 2;
+
+    // number of slots a board may be stored in
+    private static final int PROBES = 4;
+
+    // layout of the data long: depth in bits 32-39, best move in bits 40-41, the occupied flag in
+    // bit 42 and the bound in bits 43-44, bits 0-31 are 0
+    private static final int DEPTH_SHIFT = 32;
+    private static final int MOVE_SHIFT = 40;
+    private static final long OCCUPIED = 1L << 42;
+    private static final int BOUND_SHIFT = 43;
+    private static final long MOVE_MASK = 0x3L << MOVE_SHIFT;
+
+    // the boards of the entries, each XOR its data long and its value bits
+    private final long[] keys;
+
+    // depth, best move, occupied flag and bound of the entries
+    private final long[] data;
+
+    // the values of the entries, as the raw bits of the double
+    private final long[] values;
+
+    // mask that turns a hash into a slot index
+    private final int mask;
+
+    // true if boards are keyed by their canonical board
+    private final boolean symmetric;
+
+    // holds counters of lookups that found an entry, lookups that did not,
+    // and stores that replaced or gave up on an entry of another board
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder collisions = new LongAdder();
+
+    /**
+     * Creates an empty table that fits in the given memory, keyed by the boards as they are.
+     * @param megabytes Memory of the table in megabytes, at least 1.
+     */
+    public TranspositionTable(int megabytes) {
+        this(megabytes, false);
+    }
+
+    /**
+     * Creates an empty table that fits in the given memory.
+     * @param megabytes Memory of the table in megabytes, at least 1.
+     * @param symmetric true to share one entry between the 8 symmetric images of a board.
+     */
+    public TranspositionTable(int megabytes, boolean symmetric) {
+        this.symmetric = symmetric;
+        long entries = Math.max(1, (long) megabytes) * 1024 * 1024 / ENTRY_BYTES;
+        int size = (int) Long.highestOneBit(Math.min(entries, 1L << 30));
+        keys = new long[size];
+        data = new long[size];
+        values = new long[size];
+        mask = size - 1;
+    }
+
+    /**
+     * The capacity method returns the number of entries the table can hold.
+     * @return Number of entries.
+     */
+    public int capacity() {
+        return keys.length;
+    }
+
+    /**
+     * The isSymmetric method tells if the symmetric images of a board share one entry.
+     * @return true if boards are keyed by their canonical board.
+     */
+    public boolean isSymmetric() {
+        return symmetric;
+    }
+
+    /**
+     * The find method looks a board up.
+     * @param board The packed board.
+     * @param depth The depth the value is needed for.
+     * @param value Receives the value of the entry at index 0 when the board is found.
+     * @return The data long of the entry, or 0 if the board is not in the table at that depth.
+     *         Read it with isFound, bestMove and bound.
+     */
+    public long find(long board, int depth, double[] value) {
+        int symmetry = 0;
+        if (symmetric) {
+            symmetry = Symmetry.canonicalSymmetry(board);
+            board = Symmetry.transform(board, symmetry);
+        }
+        int index = index(board, depth);
+        for (int probe = 0; probe < PROBES; probe++) {
+            int slot = (index + probe) & mask;
+            long entry = data[slot];
+            long bits = values[slot];
+            if ((entry & OCCUPIED) != 0 && (keys[slot] ^ entry ^ bits) == board && depth(entry) == depth) {
+                hits.increment();
+                value[0] = Double.longBitsToDouble(bits);
+                // the move of the canonical board, turned back into the move of this board
+                return symmetry == 0 ? entry : (entry & ~MOVE_MASK)
+                        | ((long) Symmetry.inverseMove(symmetry, bestMove(entry)) << MOVE_SHIFT);
+            }
+        }
+        misses.increment();
+        return 0;
+    }
+
+    /**
+     * The findMove method looks up the best move of a board, without counting a hit or a miss,
+     * to search that move first.
+     * @param board The packed board.
+     * @param depth The depth of the entry, usually one less than the depth being searched.
+     * @return LEFT, RIGHT, UP or DOWN, or -1 if the board is not in the table at that depth.
+     */
+    public int findMove(long board, int depth) {
+        int symmetry = 0;
+        if (symmetric) {
+            symmetry = Symmetry.canonicalSymmetry(board);
+            board = Symmetry.transform(board, symmetry);
+        }
+        int index = index(board, depth);
+        for (int probe = 0; probe < PROBES; probe++) {
+            int slot = (index + probe) & mask;
+            long entry = data[slot];
+            if ((entry & OCCUPIED) != 0 && (keys[slot] ^ entry ^ values[slot]) == board && depth(entry) == depth)
+                return Symmetry.inverseMove(symmetry, bestMove(entry));
+        }
+        return -1;
+    }
+
+    /**
+     * The store method saves the exact value of a board.
+     * @param board The packed board.
+     * @param depth The depth the board was searched to.
+     * @param value The value of the board.
+     * @param bestMove The best move of the board, LEFT, RIGHT, UP or DOWN.
+     */
+    public void store(long board, int depth, double value, int bestMove) {
+        store(board, depth, value, bestMove, EXACT);
+    }
+
+    /**
+     * The store method saves the value of a board. An entry of the same board and depth is
+     * overwritten; otherwise an empty slot of the window is used, or the entry with the smallest
+     * depth if it is not deeper than the new one.
+     * @param board The packed board.
+     * @param depth The depth the board was searched to.
+     * @param value The value of the board.
+     * @param bestMove The best move of the board, LEFT, RIGHT, UP or DOWN.
+     * @param bound EXACT, LOWER if the value is a bound the board is at least, UPPER if it is a
+     *              bound the board is at most.
+     */
+    public void store(long board, int depth, double value, int bestMove, int bound) {
+        if (symmetric) {
+            int symmetry = Symmetry.canonicalSymmetry(board);
+            board = Symmetry.transform(board, symmetry);
+            bestMove = Symmetry.transformMove(symmetry, bestMove);
+        }
+        int index = index(board, depth);
+        int replace = -1;
+        int replaceDepth = Integer.MAX_VALUE;
+
+        for (int probe = 0; probe < PROBES; probe++) {
+            int slot = (index + probe) & mask;
+            long entry = data[slot];
+            if ((entry & OCCUPIED) == 0 || ((keys[slot] ^ entry ^ values[slot]) == board && depth(entry) == depth)) {
+                write(slot, board, depth, value, bestMove, bound);
+                return;
+            }
+            if (depth(entry) < replaceDepth) {
+                replace = slot;
+                replaceDepth = depth(entry);
+            }
+        }
+
+        // the window is full of other boards: keep the deeper entries
+        collisions.increment();
+        if (replaceDepth <= depth)
+            write(replace, board, depth, value, bestMove, bound);
+    }
+
+    /**
+     * The clear method empties the table and resets its counters.
+     */
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(data, 0);
+        Arrays.fill(values, 0);
+        hits.reset();
+        misses.reset();
+        collisions.reset();
+    }
+
+    /**
+     * The isFound method checks a data long returned by find.
+     * @param entry The data long.
+     * @return true if find found the board.
+     */
+    public static boolean isFound(long entry) {
+        return (entry & OCCUPIED) != 0;
+    }
+
+    /**
+     * The bestMove method reads the best move of a data long returned by find.
+     * @param entry The data long.
+     * @return LEFT, RIGHT, UP or DOWN.
+     */
+    public static int bestMove(long entry) {
+        return (int) (entry >>> MOVE_SHIFT) & 0x3;
+    }
+
+    /**
+     * The bound method reads the kind of value of a data long returned by find.
+     * @param entry The data long.
+     * @return EXACT, LOWER or UPPER.
+     */
+    public static int bound(long entry) {
+        return (int) (entry >>> BOUND_SHIFT) & 0x3;
+    }
+
+    /**
+     * The hits method returns the number of lookups that found their board.
+     * @return Number of hits.
+     */
+    public long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * The misses method returns the number of lookups that did not find their board.
+     * @return Number of misses.
+     */
+    public long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * The collisions method returns the number of stores that found their window full
+     * of other boards.
+     * @return Number of collisions.
+     */
+    public long collisions() {
+        return collisions.sum();
+    }
+
+    /**
+     * The summary method returns the counters of the table as one line of text.
+     * @return The counters and the hit rate.
+     */
+    public String summary() {
+        long hits = hits(), misses = misses();
+        long lookups = hits + misses;
+        double hitRate = lookups == 0 ? 0 : 100.0 * hits / lookups;
+        return String.format("Transposition table: %d entries%s, %d hits, %d misses (%.1f%% hit rate), %d collisions",
+                capacity(), symmetric ? " (symmetric)" : "", hits, misses, hitRate, collisions());
+    }
+
+    /**
+     * The write method fills one slot.
+     * @param slot The slot to fill.
+     * @param board The packed board.
+     * @param depth The depth the board was searched to.
+     * @param value The value of the board.
+     * @param bestMove The best move of the board.
+     * @param bound The kind of value.
+     */
+    private void write(int slot, long board, int depth, double value, int bestMove, int bound) {
+        long bits = Double.doubleToRawLongBits(value);
+        long entry = ((long) depth << DEPTH_SHIFT)
+                | ((long) bestMove << MOVE_SHIFT)
+                | OCCUPIED
+                | ((long) bound << BOUND_SHIFT);
+        keys[slot] = board ^ entry ^ bits;
+        data[slot] = entry;
+        values[slot] = bits;
+    }
+
+    /**
+     * The depth method reads the depth of a data long.
+     * @param entry The data long.
+     * @return The depth the entry was searched to.
+     */
+    private static int depth(long entry) {
+        return (int) (entry >>> DEPTH_SHIFT) & 0xFF;
+    }
+
+    /**
+     * The index method hashes a board and depth into the first slot of its window,
+     * mixing all 64 bits of the board so boards that differ in one cell spread out.
+     * @param board The packed board.
+     * @param depth The depth of the entry.
+     * @return The first slot of the window.
+     */
+    private int index(long board, int depth) {
+        long hash = board + depth * 0x9E3779B97F4A7C15L;
+        hash = (hash ^ (hash >>> 33)) * 0xFF51AFD7ED558CCDL;
+        hash = (hash ^ (hash >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return (int) hash & mask;
+    }
+}
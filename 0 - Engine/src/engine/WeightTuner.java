@@ -0,0 +1,370 @@
+package engine;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * The WeightTuner program tunes the weights of the WeightedEvaluator with the cross-entropy
+ * method. Every generation draws a population of weight vectors from a normal distribution per
+ * term, plays the same seeded games with each of them (all the games of one candidate at the same
+ * time on a SelfPlayRunner, so every core is busy), and moves the distribution to the mean and
+ * the spread of the candidates with the best mean score. The best candidate seen so far is
+ * written to the weights file after every generation, in the format WeightedEvaluator.load reads.
+ * All candidates of a generation play the same games, so they are compared on the same tiles, and
+ * the candidates and games of generation g only depend on the seed and g. The state of the run is
+ * written to a checkpoint file after every generation, with the settings the games depend on; a
+ * run started with the same checkpoint file and settings goes on from the last finished generation
+ * and plays exactly the games it would have played without the restart. A run started with other
+ * settings stops with an error instead of mixing the two.
+ * Arguments: "-generations N" (30), "-population N" candidates per generation (24), "-elite N"
+ * best candidates kept (6), "-games N" games per candidate (40), "-depth N" expectimax depth (1),
+ * "-threads N" (the number of processors), "-seed S" (the clock), "-out FILE" the weights file
+ * (weights.txt) and "-checkpoint FILE" (the weights file with ".ckpt" added).
+ * For example: java -cp out engine.WeightTuner -generations 50 -games 100 -out weights.txt
+ */
+public final class WeightTuner {
+
+    // the smallest spread of a term, so the search never stops exploring
+    public static final double MIN_SIGMA = 0.05;
+
+    // the spread of every term in the first generation
+    public static final double START_SIGMA = 1.0;
+
+    // spreads the seeds of consecutive generations apart
+    private static final long SEED_STEP = 0x9E3779B97F4A7C15L;
+
+    // holds the settings of the run
+    private final int population;
+    private final int elite;
+    private final int games;
+    private final int depth;
+    private final int threads;
+
+    // holds the seed of the run, replaced by the seed of a checkpoint
+    private long seed;
+
+    // holds the distribution the candidates are drawn from, one mean and spread per term
+    private final double[] mean;
+    private final double[] sigma;
+
+    // holds the number of finished generations
+    private int generation;
+
+    // holds the best candidate of all finished generations and its mean score
+    private double[] best;
+    private double bestScore = Double.NEGATIVE_INFINITY;
+
+    /**
+     * Constructor of the WeightTuner class, starts from the default weights.
+     * @param population Number of candidates per generation.
+     * @param elite Number of best candidates the distribution moves to.
+     * @param games Number of games played by every candidate.
+     * @param depth Depth of the expectimax search of the games.
+     * @param threads Number of games played at the same time.
+     * @param seed Seed of the run.
+     */
+    public WeightTuner(int population, int elite, int games, int depth, int threads, long seed) {
+        if (elite < 1 || elite > population)
+            throw new IllegalArgumentException("The elite must be between 1 and the population, got " + elite);
+        this.population = population;
+        this.elite = elite;
+        this.games = games;
+        this.depth = depth;
+        this.threads = threads;
+        this.seed = seed;
+        this.mean = WeightedEvaluator.defaults().weights();
+        this.sigma = new double[WeightedEvaluator.TERMS];
+        Arrays.fill(sigma, START_SIGMA);
+        this.best = mean.clone();
+    }
+
+    /**
+     * Tunes the weights, starting from the checkpoint file when it exists.
+     *
+     * @param args The settings of the run, see the class comment.
+     * @throws IOException if the checkpoint or the weights file cannot be read or written.
+     */
+    public static void main(String[] args) throws IOException {
+        int generations = 30;
+        int population = 24;
+        int elite = 6;
+        int games = 40;
+        int depth = 1;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long seed = System.nanoTime();
+        Path out = Paths.get("weights.txt");
+        Path checkpoint = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-generations"))
+                generations = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-population"))
+                population = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-elite"))
+                elite = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-games"))
+                games = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-depth"))
+                depth = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-threads"))
+                threads = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-seed"))
+                seed = Long.parseLong(args[++i]);
+            else if (args[i].equals("-out"))
+                out = Paths.get(args[++i]);
+            else if (args[i].equals("-checkpoint"))
+                checkpoint = Paths.get(args[++i]);
+        }
+        if (checkpoint == null)
+            checkpoint = Paths.get(out + ".ckpt");
+
+        WeightTuner tuner = new WeightTuner(population, elite, games, depth, threads, seed);
+        if (Files.exists(checkpoint)) {
+            tuner.load(checkpoint);
+            System.out.println("Resuming from " + checkpoint + " after generation " + tuner.generation
+                    + ", seed " + tuner.seed);
+        }
+        else
+            System.out.println("Tuning " + population + " candidates of " + games + " games per generation on "
+                    + threads + " threads, seed " + seed);
+
+        while (tuner.generation < generations) {
+            long start = System.nanoTime();
+            double generationBest = tuner.step();
+            tuner.save(checkpoint);
+            tuner.evaluator().save(out, String.format(Locale.ROOT, "mean score %.1f over %d games at depth %d, generation %d",
+                    tuner.bestScore, games, depth, tuner.generation));
+            System.out.println(String.format(Locale.ROOT, "generation %d: best %.1f, best so far %.1f, %.1f s%n  mean  %s%n  sigma %s",
+                    tuner.generation, generationBest, tuner.bestScore, (System.nanoTime() - start) / 1e9,
+                    format(tuner.mean), format(tuner.sigma)));
+        }
+        System.out.println("Best weights (" + String.format(Locale.ROOT, "%.1f", tuner.bestScore) + "): "
+                + tuner.evaluator() + " in " + out);
+    }
+
+    /**
+     * The step method plays one generation: it draws the candidates, scores each one by the mean
+     * score of its games, keeps the best candidate and moves the distribution to the elite.
+     * @return The best mean score of the generation.
+     */
+    public double step() {
+        Random random = new Random(seed + generation * SEED_STEP);
+        long gamesSeed = random.nextLong();
+        double[][] candidates = new double[population][];
+        double[] scores = new double[population];
+        Integer[] order = new Integer[population];
+        for (int i = 0; i < population; i++) {
+            candidates[i] = new double[WeightedEvaluator.TERMS];
+            for (int term = 0; term < WeightedEvaluator.TERMS; term++)
+                candidates[i][term] = mean[term] + sigma[term] * random.nextGaussian();
+            scores[i] = score(candidates[i], gamesSeed);
+            order[i] = i;
+        }
+
+        // the elite is the candidates with the best scores, the first one on a tie
+        Arrays.sort(order, (a, b) -> Double.compare(scores[b], scores[a]));
+        if (scores[order[0]] > bestScore) {
+            bestScore = scores[order[0]];
+            best = candidates[order[0]].clone();
+        }
+        for (int term = 0; term < WeightedEvaluator.TERMS; term++) {
+            double sum = 0;
+            for (int i = 0; i < elite; i++)
+                sum += candidates[order[i]][term];
+            double termMean = sum / elite;
+            double squares = 0;
+            for (int i = 0; i < elite; i++)
+                squares += (candidates[order[i]][term] - termMean) * (candidates[order[i]][term] - termMean);
+            mean[term] = termMean;
+            sigma[term] = Math.max(MIN_SIGMA, Math.sqrt(squares / elite));
+        }
+        generation++;
+        return scores[order[0]];
+    }
+
+    /**
+     * The score method plays the games of one candidate.
+     * @param weights The weights of the candidate.
+     * @param gamesSeed Seed of the games, the same for every candidate of a generation.
+     * @return The mean score of the games.
+     */
+    private double score(double[] weights, long gamesSeed) {
+        SearchEngine engine = new SearchEngine(SearchEngine.Mode.EXPECTIMAX, new WeightedEvaluator(weights));
+        return new SelfPlayRunner(new SearchStrategy(engine, depth), threads).run(games, gamesSeed).meanScore();
+    }
+
+    /**
+     * The evaluator method makes an evaluator with the best weights found so far.
+     * @return A new evaluator.
+     */
+    public WeightedEvaluator evaluator() {
+        return new WeightedEvaluator(best);
+    }
+
+    /**
+     * The generation method returns the number of finished generations.
+     * @return Number of generations.
+     */
+    public int generation() {
+        return generation;
+    }
+
+    /**
+     * The save method writes the state of the run to a checkpoint file. The file is written next
+     * to the checkpoint and then moved over it, so a run stopped while saving keeps the last
+     * checkpoint.
+     * @param path The checkpoint file.
+     * @throws IOException if the file cannot be written.
+     */
+    public void save(Path path) throws IOException {
+        Path temp = Paths.get(path + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.US_ASCII)) {
+            writer.write("# WeightTuner checkpoint" + System.lineSeparator());
+            writer.write("seed " + seed + System.lineSeparator());
+            writer.write("population " + population + System.lineSeparator());
+            writer.write("elite " + elite + System.lineSeparator());
+            writer.write("games " + games + System.lineSeparator());
+            writer.write("depth " + depth + System.lineSeparator());
+            writer.write("generation " + generation + System.lineSeparator());
+            writer.write("mean " + values(mean) + System.lineSeparator());
+            writer.write("sigma " + values(sigma) + System.lineSeparator());
+            writer.write("best " + values(best) + System.lineSeparator());
+            writer.write("bestScore " + bestScore + System.lineSeparator());
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * The load method reads the state of a run from a checkpoint file written by save. The seed of
+     * the checkpoint replaces the seed of the tuner, so the run plays the games it would have
+     * played without the restart. The population, elite, games and depth of the checkpoint must be
+     * the ones of the tuner, the number of threads may differ.
+     * @param path The checkpoint file.
+     * @throws IOException if the file cannot be read, is not a checkpoint or was written with
+     *                     other settings.
+     */
+    public void load(Path path) throws IOException {
+        boolean[] found = new boolean[10];
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.US_ASCII)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#"))
+                    continue;
+                String[] parts = line.split("\\s+");
+                try {
+                    switch (parts[0]) {
+                        case "seed":
+                            seed = Long.parseLong(parts[1]);
+                            found[0] = true;
+                            break;
+                        case "population":
+                            found[6] = check(path, parts, population);
+                            break;
+                        case "elite":
+                            found[7] = check(path, parts, elite);
+                            break;
+                        case "games":
+                            found[8] = check(path, parts, games);
+                            break;
+                        case "depth":
+                            found[9] = check(path, parts, depth);
+                            break;
+                        case "generation":
+                            generation = Integer.parseInt(parts[1]);
+                            found[1] = true;
+                            break;
+                        case "mean":
+                            found[2] = parse(parts, mean);
+                            break;
+                        case "sigma":
+                            found[3] = parse(parts, sigma);
+                            break;
+                        case "best":
+                            found[4] = parse(parts, best);
+                            break;
+                        case "bestScore":
+                            bestScore = Double.parseDouble(parts[1]);
+                            found[5] = true;
+                            break;
+                        default:
+                            throw new IOException("Unknown line in " + path + ": " + line);
+                    }
+                } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                    throw new IOException("Not a checkpoint line: " + line, e);
+                }
+            }
+        }
+        for (boolean line : found) {
+            if (!line)
+                throw new IOException(path + " is not a complete checkpoint");
+        }
+    }
+
+    /**
+     * The check method reads one setting from a checkpoint line and compares it to the setting of
+     * the tuner.
+     * @param path The checkpoint file.
+     * @param parts The words of the line, the name first.
+     * @param value The setting of the tuner.
+     * @return true once the setting is read.
+     * @throws IOException if the checkpoint was written with another value.
+     */
+    private static boolean check(Path path, String[] parts, int value) throws IOException {
+        int saved = Integer.parseInt(parts[1]);
+        if (saved != value)
+            throw new IOException(path + " was written with -" + parts[0] + " " + saved + ", not " + value
+                    + "; use the same settings or another checkpoint file");
+        return true;
+    }
+
+    /**
+     * The parse method reads one value per term from a checkpoint line.
+     * @param parts The words of the line, the name first.
+     * @param values Receives the values.
+     * @return true once all values are read.
+     * @throws IOException if the line does not hold one value per term.
+     */
+    private static boolean parse(String[] parts, double[] values) throws IOException {
+        if (parts.length != values.length + 1)
+            throw new IOException("Expected " + values.length + " values for " + parts[0] + ", got " + (parts.length - 1));
+        for (int i = 0; i < values.length; i++)
+            values[i] = Double.parseDouble(parts[i + 1]);
+        return true;
+    }
+
+    /**
+     * The values method writes the values of a vector so parse reads back the same doubles.
+     * @param values The values.
+     * @return The values separated by spaces.
+     */
+    private static String values(double[] values) {
+        StringBuilder text = new StringBuilder();
+        for (double value : values) {
+            if (text.length() > 0)
+                text.append(' ');
+            text.append(value);
+        }
+        return text.toString();
+    }
+
+    /**
+     * The format method writes the values of a vector rounded for the progress lines.
+     * @param values The values.
+     * @return The values with 3 decimals, separated by spaces.
+     */
+    private static String format(double[] values) {
+        StringBuilder text = new StringBuilder();
+        for (double value : values)
+            text.append(String.format(Locale.ROOT, "%8.3f", value));
+        return text.toString();
+    }
+}
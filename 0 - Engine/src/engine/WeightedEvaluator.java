@@ -0,0 +1,269 @@
+package engine;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * The WeightedEvaluator class scores a leaf with a weighted sum of heuristic terms:
+ * - EMPTY: the number of empty cells.
+ * - MONOTONICITY: minus how far each row and column is from being sorted in one direction, in
+ *   exponents, taking the direction with the smaller distance.
+ * - SMOOTHNESS: minus the exponent differences between neighbour tiles of a row or column,
+ *   skipping the empty cells between them.
+ * - MERGES: the number of neighbour tiles of a row or column with the same value, skipping the
+ *   empty cells between them.
+ * - CORNER: the exponent of the max tile when it is in a corner, 0 otherwise.
+ * - SCORE: the score of the merges made by the last move.
+ * The first four terms only depend on one row or column at a time, so they are weighted and
+ * added up once for every one of the 65,536 possible 16 bit rows when the evaluator is made.
+ * Scoring a leaf is then eight table reads (the four rows and the four rows of the transposed
+ * board), the corner check and the move score. Every empty cell is in one row and one column,
+ * so the table holds half of the empty cells weight.
+ * The weights are stored in a text file with one "term weight" line per term, for example
+ * "empty 2.7", and lines starting with # are comments.
+ */
+public final class WeightedEvaluator implements Evaluator {
+
+    /**
+     * The Term enum names the terms of the evaluation, in the order of the weights.
+     */
+    public enum Term {
+        EMPTY, MONOTONICITY, SMOOTHNESS, MERGES, CORNER, SCORE;
+
+        /**
+         * The fileName method returns the name of the term in a weights file.
+         * @return The lower case name of the term.
+         */
+        public String fileName() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    // number of terms, and so of weights
+    public static final int TERMS = Term.values().length;
+
+    // the weights used when none are given, in the order of Term
+    private static final double[] DEFAULT_WEIGHTS = {2.7, 1.0, 0.1, 1.0, 1.0, 1.0};
+
+    // number of different 16 bit rows
+    private static final int ROWS = 1 << 16;
+
+    // holds the weights of the terms, in the order of Term
+    private final double[] weights;
+
+    // holds the weighted sum of the row terms for every 16 bit row
+    private final double[] rowValues = new double[ROWS];
+
+    /**
+     * Constructor of the WeightedEvaluator class, builds the row table of the weights.
+     * @param weights The weight of every term, in the order of Term.
+     */
+    public WeightedEvaluator(double... weights) {
+        if (weights.length != TERMS)
+            throw new IllegalArgumentException("Expected " + TERMS + " weights, got " + weights.length);
+        this.weights = weights.clone();
+        for (int row = 0; row < ROWS; row++)
+            rowValues[row] = rowValue(row);
+    }
+
+    /**
+     * The defaults method makes an evaluator with the default weights.
+     * @return A new evaluator.
+     */
+    public static WeightedEvaluator defaults() {
+        return new WeightedEvaluator(DEFAULT_WEIGHTS);
+    }
+
+    /**
+     * The weights method returns a copy of the weights of the evaluator.
+     * @return The weight of every term, in the order of Term.
+     */
+    public double[] weights() {
+        return weights.clone();
+    }
+
+    /**
+     * The weight method returns the weight of one term.
+     * @param term The term.
+     * @return Its weight.
+     */
+    public double weight(Term term) {
+        return weights[term.ordinal()];
+    }
+
+    @Override
+    public double evaluate(long board, int moveScore) {
+        long columns = Bitboard.transpose(board);
+        double value = rowValues[(int) board & 0xFFFF] + rowValues[(int) (board >>> 16) & 0xFFFF]
+                + rowValues[(int) (board >>> 32) & 0xFFFF] + rowValues[(int) (board >>> 48) & 0xFFFF]
+                + rowValues[(int) columns & 0xFFFF] + rowValues[(int) (columns >>> 16) & 0xFFFF]
+                + rowValues[(int) (columns >>> 32) & 0xFFFF] + rowValues[(int) (columns >>> 48) & 0xFFFF];
+        return value + weights[Term.CORNER.ordinal()] * corner(board)
+                + weights[Term.SCORE.ordinal()] * moveScore;
+    }
+
+    /**
+     * The corner method finds if the max tile of the board is in one of its corners.
+     * @param board The packed board.
+     * @return The exponent of the max tile if a corner holds it, 0 otherwise.
+     */
+    public static int corner(long board) {
+        int max = Bitboard.maxExponent(board);
+        // cells 0, 3, 12 and 15 are the corners
+        if (Bitboard.getExponent(board, 0) == max || Bitboard.getExponent(board, 3) == max
+                || Bitboard.getExponent(board, 12) == max || Bitboard.getExponent(board, 15) == max)
+            return max;
+        return 0;
+    }
+
+    /**
+     * The rowValue method adds up the weighted row terms of one row.
+     * @param row The 16 bit row.
+     * @return The weighted sum of half the empty cells, monotonicity, smoothness and merges.
+     */
+    private double rowValue(int row) {
+        int[] cells = new int[Bitboard.SIZE];
+        for (int col = 0; col < Bitboard.SIZE; col++)
+            cells[col] = (row >>> (col * 4)) & 0xF;
+        return weights[Term.EMPTY.ordinal()] * empty(cells) / 2
+                + weights[Term.MONOTONICITY.ordinal()] * monotonicity(cells)
+                + weights[Term.SMOOTHNESS.ordinal()] * smoothness(cells)
+                + weights[Term.MERGES.ordinal()] * merges(cells);
+    }
+
+    /**
+     * The empty method counts the empty cells of a row.
+     * @param cells The exponents of the row.
+     * @return Number of empty cells.
+     */
+    static int empty(int[] cells) {
+        int count = 0;
+        for (int cell : cells) {
+            if (cell == 0)
+                count++;
+        }
+        return count;
+    }
+
+    /**
+     * The monotonicity method measures how far a row is from being sorted. It adds up the drops
+     * from left to right and the rises from left to right, and keeps the smaller of the two.
+     * @param cells The exponents of the row.
+     * @return Minus the distance to a sorted row, 0 for a sorted row.
+     */
+    static int monotonicity(int[] cells) {
+        int drops = 0;
+        int rises = 0;
+        for (int i = 1; i < cells.length; i++) {
+            if (cells[i - 1] > cells[i])
+                drops += cells[i - 1] - cells[i];
+            else
+                rises += cells[i] - cells[i - 1];
+        }
+        return -Math.min(drops, rises);
+    }
+
+    /**
+     * The smoothness method adds up the differences between neighbour tiles of a row, skipping
+     * the empty cells between them.
+     * @param cells The exponents of the row.
+     * @return Minus the sum of the differences, 0 when all tiles are equal.
+     */
+    static int smoothness(int[] cells) {
+        int sum = 0;
+        int previous = 0;
+        for (int cell : cells) {
+            if (cell == 0)
+                continue;
+            if (previous != 0)
+                sum += Math.abs(cell - previous);
+            previous = cell;
+        }
+        return -sum;
+    }
+
+    /**
+     * The merges method counts the neighbour tiles of a row with the same value, skipping the
+     * empty cells between them.
+     * @param cells The exponents of the row.
+     * @return Number of equal neighbours.
+     */
+    static int merges(int[] cells) {
+        int count = 0;
+        int previous = 0;
+        for (int cell : cells) {
+            if (cell == 0)
+                continue;
+            if (cell == previous)
+                count++;
+            previous = cell;
+        }
+        return count;
+    }
+
+    /**
+     * The load method reads an evaluator from a weights file. A term that is not in the file
+     * keeps its default weight.
+     * @param path The weights file.
+     * @return A new evaluator with the weights of the file.
+     * @throws IOException if the file cannot be read or names an unknown term.
+     */
+    public static WeightedEvaluator load(Path path) throws IOException {
+        double[] weights = DEFAULT_WEIGHTS.clone();
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.US_ASCII)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#"))
+                    continue;
+                String[] parts = line.split("\\s+");
+                if (parts.length != 2)
+                    throw new IOException("Not a weight line: " + line);
+                Term term = null;
+                for (Term candidate : Term.values()) {
+                    if (candidate.fileName().equals(parts[0].toLowerCase(Locale.ROOT)))
+                        term = candidate;
+                }
+                if (term == null)
+                    throw new IOException("Unknown term " + parts[0] + " in " + path);
+                try {
+                    weights[term.ordinal()] = Double.parseDouble(parts[1]);
+                } catch (NumberFormatException e) {
+                    throw new IOException("Not a weight: " + parts[1] + " in " + path, e);
+                }
+            }
+        }
+        return new WeightedEvaluator(weights);
+    }
+
+    /**
+     * The save method writes the weights of the evaluator to a weights file that load reads back.
+     * @param path The weights file to write.
+     * @param comment A line written first as a comment, or null for none.
+     * @throws IOException if the file cannot be written.
+     */
+    public void save(Path path, String comment) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.US_ASCII)) {
+            if (comment != null)
+                writer.write("# " + comment + System.lineSeparator());
+            for (Term term : Term.values())
+                writer.write(term.fileName() + " " + weights[term.ordinal()] + System.lineSeparator());
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        for (Term term : Term.values()) {
+            if (text.length() > 0)
+                text.append(' ');
+            text.append(term.fileName()).append('=').append(String.format(Locale.ROOT, "%.3f", weights[term.ordinal()]));
+        }
+        return text.toString();
+    }
+}
@@ -14,562 +14,232 @@
  * Also, this program returns the path for the first maximum score, there could be another path with
  * the same maximum score. The first path depends on the sequence of actions, the sequence used in
  * this program is Left, Right, Up, and Down.
+ * By default the program no longer builds the tree: the BFS runs over the moves level by level,
+ * keeping only the boards, scores and paths of the current level as numbers, so "-depth K" can
+ * look K moves ahead instead of three. "-tree" runs the original tree of strings (three moves only).
+ * Both give the same maximum score and path.
+ * For deep lookaheads (6 to 10 moves) the BFS expands only one node per distinct board of a level
+ * and skips nodes that cannot beat the maximum anymore, "-stats" prints the size and memory of
+ * every level.
+ * The input file is streamed board by board from its bytes and all results go through one buffered
+ * writer, so input files with millions of test cases are never loaded whole. Reading, solving and
+ * writing run at the same time: test cases are solved on "-threads N" threads (all the cores by
+ * default) and written in the order of the input file.
+ * "-in FILE" and "-out FILE" replace 2048_in.txt and 2048_out.txt. The input can also be a binary
+ * board file (see engine.BoardFile), and an output file ending in ".bin" is written as a binary
+ * board file holding every board with its maximum score and path.
  *
  * @author  Yalda Nafisinia
  * @version 1.0
  */
 import java.io.*;
+import java.nio.file.Paths;
 import java.util.*;
+
+import engine.BatchPipeline;
+import engine.Bitboard;
+import engine.BinaryBoardWriter;
+import engine.BoardFile;
+import engine.BoardSource;
+import engine.LookaheadBfs;
+import engine.ResultWriter;
+
 public class Game2048 {
-    // holds the number of test cases, the first line in input file
-    private static int numberOfTests;
+    // holds the initial board of this test case, packed by the engine
+    private final long board;
+
+    // holds the number of moves to look ahead
+    private final int depth;
 
-    // holds all the initial boards from input file
-    private static ArrayList<int[][]> boards = new ArrayList<>();
+    // true to build the tree of strings, false to stream the BFS over packed boards
+    private final boolean tree;
+
+    // holds the statistics of every level of the streamed BFS
+    private List<LookaheadBfs.Level> levels = Collections.emptyList();
 
     // holds all scores calculated after each possible move and the path to
     // that score, all as a string. Scores are saved in level order.
-    private static ArrayList<String> scores = new ArrayList<>();
+    private final ArrayList<String> scores = new ArrayList<>();
 
     // holds middle game possible boards
-    private static ArrayList<int[][]> middleGameBoards = new ArrayList<>();
+    private final ArrayList<Long> middleGameBoards = new ArrayList<>();
 
     // holds characters of the path to the maximum cumulated score for 1 board
-    private static ArrayList<Character> maxPath = new ArrayList<>();
+    private final ArrayList<Character> maxPath = new ArrayList<>();
 
     // holds maximum score
-    private static int maxScore = 0;
+    private int maxScore = 0;
 
     // root node for creating tree
-    private static Node root = null;
+    private Node root = null;
 
     // used for BFS traverse and search
-    private static Queue<Node> q = new LinkedList<>();
+    private final Queue<Node> q = new LinkedList<>();
 
     /**
-     * Read files, creates boards, plays the game for all test cases, with BFS
-     * finds the maximum score after 3 moves and then for the first case it writes
-     * the file and then for the rest it appends the file.
-     *
-     * @param args A string array containing the command line arguments.
+     * Creates the solver of one test case. Each test case has its own tree, scores and
+     * maximum, so test cases can be solved at the same time.
+     * @param board The packed initial board of the test case.
+     * @param depth The number of moves to look ahead, the tree only supports 3.
+     * @param tree true to build the tree of strings, false to stream the BFS.
      */
-    public static void main(String[] args) throws IOException{
-
-        // call readFile method to start reading the input file
-        readFile();
-
-        // at this point boards are ready saved in boards array list, call play function
-        // to start to play to find all possible moves and score
-        play(boards.get(0));
-
-        // hold size of the scores list, this is needed to create the tree as scores are saved
-        // in level order, then call createTree method to build the tree
-        int listSize = scores.size();
-        createTree(scores, listSize);
-
-        // start the BFS traversal and search tree for maximum cumulated score
-        levelOrderTraversal(root);
-
-        // write the max score and path in output file
-        writeFile();
-
-        // steps above are only for the first board in test cases input file
-        // steps below are for rest of the test cases
-        // these are separated because first time we WRITE the file but for
-        // the rest we APPEND the file
-        for (int i = 1; i < numberOfTests; i++){
-
-            //clean scores, middle game boards, max score, max path, root,
-            // and queue for more tests
-            scores.removeAll(scores);
-            middleGameBoards.removeAll(middleGameBoards);
-            maxPath.removeAll(maxPath);
-            maxScore = 0;
-            root = null;
-            q.removeAll(q);
-
-            // play game, create tree, search tree, append output file with the result
-            play(boards.get(i));
-            listSize = scores.size();
-            createTree(scores, listSize);
-            levelOrderTraversal(root);
-            appendFile();
-        }
+    public Game2048(long board, int depth, boolean tree){
+        this.board = board;
+        this.depth = depth;
+        this.tree = tree;
     }
 
     /**
-     * The readFile method, read files from 2048_in.txt file. It read first line
-     * first, then each 4 lines will be a board.
-     * @throws IOException Handles exception for input and output file.
+     * Reads the boards one by one, plays the game for all test cases, with BFS
+     * finds the maximum score after 3 moves and writes it to the output file, which
+     * is opened once for all test cases. "-depth K" looks K moves
+     * ahead instead of 3, "-tree" builds the original tree of strings, "-stats"
+     * prints the size and memory of every BFS level of every test case and
+     * "-threads N" solves the test cases on N threads. "-in FILE" and "-out FILE"
+     * read and write other files, text or binary.
+     *
+     * @param args A string array containing the command line arguments.
      */
-    private static void readFile()throws IOException{
-
-        // holds lines of file
-        ArrayList<String> linesList = new ArrayList<>();
-
-        // read file through scanner object
-        File file = new File("2048_in.txt");
-        Scanner inputFile = new Scanner(file);
-
-        // read first line
-        numberOfTests = Integer.parseInt(inputFile.nextLine());
+    public static void main(String[] args) throws IOException{
 
-        // read from 2nd line and add all of them in linesList array list
-        while (inputFile.hasNext())
-        {
-            String line = inputFile.nextLine();
-            linesList.add(line);
+        // pick the lookahead and the BFS mode
+        int depth = 3;
+        boolean tree = false;
+        boolean stats = false;
+        int threads = Runtime.getRuntime().availableProcessors();
+        String in = "2048_in.txt";
+        String out = "2048_out.txt";
+        for (int i = 0; i < args.length; i++){
+            if (args[i].equals("-depth"))
+                depth = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-tree"))
+                tree = true;
+            else if (args[i].equals("-stats"))
+                stats = true;
+            else if (args[i].equals("-threads"))
+                threads = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-in"))
+                in = args[++i];
+            else if (args[i].equals("-out"))
+                out = args[++i];
         }
-
-        // close scanner
-        inputFile.close();
-
-        // pass linesList array list to processLines method to process each line
-        processLines(linesList);
-    }
-
-    /**
-     * The processLines methods processes each line, which is string, from
-     * the linesList array list, converts them to int and pass them to buildBoard
-     * method to create the matrix.
-     * @param linesList An array list of lines/strings from input file
-     */
-    private static void processLines(ArrayList<String> linesList){
-
-        final int SIZE = 4;                                 // holds size of the board
-        String [] temp;                                     // holds a temporary string array
-        ArrayList<int[]> intList = new ArrayList<>();       // holds the converted integers
-
-
-        // remove all commas, convert digits in string to int
-        for (int i = 0; i < linesList.size(); i++){
-            temp = linesList.get(i).split(",");
-            int [] tempInt = new int[SIZE];
-
-            for(int j = 0; j < SIZE; j++){
-                tempInt[j] = Integer.parseInt(temp[j]);
-            }
-
-            // add each int in an integer array
-            intList.add(tempInt);
+        if (tree && depth != 3){
+            System.out.println("The tree only plays 3 moves, use the default BFS for " + depth + " moves.");
+            depth = 3;
         }
 
-        // pass the integer array to buildBoard method to create the matrix
-        buildBoard(intList);
-    }
-
-    /**
-     * The buildBoard method gets the integer array and builds a 2D array, which
-     * is board in 2048 game.
-     * @param intList An array of integers to be added to board/matrix
-     */
-    private static void buildBoard(ArrayList<int[]> intList){
-
-        int counter = 0;            // while loop stopper
-
-        //create 4by4 boards for each test case and hold all of them in boards
-        final int SIZE = 4;
-        while (counter < numberOfTests * SIZE){
-
-            int [][] board = new int[SIZE][SIZE];
-
-            for (int row = 0; row < SIZE; row++){
-                for (int col = 0; col < SIZE; col++){
-                board[row][col] = intList.get(counter)[col];
+        // the engine builds its row tables once when it is first used, report how long it took
+        System.out.println(String.format("Row lookup tables built in %.2f ms", Bitboard.tableBuildMillis()));
+
+        // a reader thread parses the test cases of the input file, the solver threads solve them
+        // and this thread writes their max scores and paths to the output file in the input order,
+        // the output file stays open until the last test case is written
+        final int lookahead = depth;
+        final boolean useTree = tree;
+        final boolean printStats = stats;
+        BatchPipeline<Game2048> pipeline = new BatchPipeline<>(
+                board -> new Game2048(board, lookahead, useTree).solve(), threads);
+        try (BoardSource boards = BoardFile.open(Paths.get(in))){
+            if (out.endsWith(".bin")){
+                try (BinaryBoardWriter output = BinaryBoardWriter.create(Paths.get(out), boards.count(), true)){
+                    pipeline.run(boards, (index, board, game) -> {
+                        output.write(board, game.maxScore(), game.maxPath());
+                        if (printStats)
+                            game.printLevels(index + 1);
+                    });
+                }
+            }
+            else {
+                try (ResultWriter output = ResultWriter.create(Paths.get(out))){
+                    pipeline.run(boards, (index, board, game) -> {
+                        output.write(game.maxScore(), game.maxPath());
+                        if (printStats)
+                            game.printLevels(index + 1);
+                    });
                 }
-                counter++;
             }
-
-            // hold each test cases as a board in boards
-            boards.add(board);
         }
     }
 
     /**
-     * The moveUp methods have all 2048 game rules for the action move up.
-     * This method also save the score after moving up in scores global variable.
-     * @param board The 4by4 board which needs to move up.
+     * The solve method plays the game to find all possible moves and score, creates
+     * the tree and searches it with BFS for the maximum cumulated score and its path.
+     * Without the tree, the BFS streams over the packed boards instead.
+     * @return This solver, holding the maximum score and its path.
      */
-    private static void moveUp(int[][] board){
-        int sum;            // holds sum after each possible move
-        int score = 0;
-
-        for (int col = 0; col < 4; col++){
-            int row = 0;
-            if (board[row][col] == board[row+1][col] && board[row+2][col] == board[row+3][col]){
-                sum = board[row][col] + board[row+1][col];
-                score += sum;
-                board[row][col] = sum;
-                sum = board[row+2][col] + board[row+3][col];
-                score += sum;
-                board[row+1][col] = sum;
-                board[row+2][col] = 0;
-                board[row+3][col] = 0;
-            }
-            else if (board[row][col] == board[row+1][col]) {
-                sum = board[row][col] + board[row+1][col];
-                score += sum;
-                board[row][col] = sum;
-                board[row+1][col] = board[row+2][col];
-                board[row+2][col] = board[row+3][col];
-                board[row+3][col] = 0;
-            }
-            else if (board[row][col] == board[row+2][col] && board[row+1][col]==0){
-                sum = board[row][col] + board[row+2][col];
-                score += sum;
-                board[row][col] = sum;
-                board[row+1][col] = board[row+3][col];
-                board[row+2][col] = 0;
-                board[row+3][col] = 0;
-            }
-            else if (board[row][col] == board[row+3][col] && board[row+1][col]==0 && board[row+2][col]==0){
-                sum = board[row][col] + board[row+3][col];
-                score += sum;
-                board[row][col] = sum;
-                board[row+3][col] = 0;
-            }
-            else if (board[row+1][col] == board[row+2][col]){
-                sum = board[row+1][col] + board[row+2][col];
-                score += sum;
-                board[row+1][col] = sum;
-                board[row+2][col] = board[row+3][col];
-                board[row+3][col] = 0;
-            }
-            else if (board[row+1][col] == board[row+3][col] && board[row+2][col]==0){
-                sum = board[row+1][col] + board[row+3][col];
-                score += sum;
-                board[row+1][col] = sum;
-                board[row+3][col] = 0;
-            }
-            else if (board[row+2][col] == board[row+3][col]){
-                sum = board[row+2][col] + board[row+3][col];
-                score += sum;
-                board[row+2][col] = sum;
-                board[row+3][col] = 0;
-            }
-
-            if (board[row+2][col] == 0){
-                board[row+2][col] = board[row+3][col];
-                board[row+3][col] = 0;
-            }
-            if (board[row+1][col] == 0){
-                board[row+1][col] = board[row+2][col];
-                board[row+2][col] = board[row+3][col];
-                board[row+3][col] = 0;
-            }
-            if (board[row][col] == 0) {
-                board[row][col] = board[row+1][col];
-                board[row+1][col] = board[row+2][col];
-                board[row+2][col] = board[row+3][col];
-                board[row+3][col] = 0;
-            }
+    public Game2048 solve(){
+
+        if (!tree){
+            LookaheadBfs.Result result = LookaheadBfs.search(board, depth);
+            maxScore = result.maxScore;
+            path(result.letters());
+            levels = result.levels;
+            return this;
         }
 
-        // save the score and path after moving up in scores
-        scores.add(score + "U");
+        // play to find all possible moves and score
+        play(board);
+
+        // hold size of the scores list, this is needed to create the tree as scores are saved
+        // in level order, then call createTree method to build the tree
+        int listSize = scores.size();
+        createTree(scores, listSize);
+
+        // start the BFS traversal and search tree for maximum cumulated score
+        levelOrderTraversal(root);
+        return this;
     }
 
     /**
-     * The moveDown methods have all 2048 game rules for the action move down.
-     * This method also save the score after moving down in scores global variable.
-     * @param board The 4by4 board which needs to move down.
+     * The maxScore method returns the maximum cumulated score found by solve.
+     * @return The maximum score.
      */
-    private static void moveDown(int[][] board){
-        int sum;            // holds sum after each possible move
-        int score = 0;
-
-        for (int col = 0; col < 4; col++){
-            int row = 0;
-
-            if (board[row+3][col] == board[row+2][col] && board[row+1][col] == board[row][col]){
-                sum = board[row+3][col] + board[row+2][col];
-                score += sum;
-                board[row+3][col] = sum;
-                sum = board[row][col] + board[row+1][col];
-                score += sum;
-                board[row+2][col] = sum;
-                board[row+1][col] = 0;
-                board[row][col] = 0;
-            }
-            else if (board[row+3][col] == board[row+2][col]) {
-                sum = board[row+3][col] + board[row+2][col];
-                score += sum;
-                board[row+3][col] = sum;
-                board[row+2][col] = board[row+1][col];
-                board[row+1][col] = board[row][col];
-                board[row][col] = 0;
-            }
-
-            else if (board[row+3][col] == board[row+1][col] && board[row+2][col]==0){
-                sum = board[row+3][col] + board[row+1][col];
-                score += sum;
-                board[row+3][col] = sum;
-                board[row+2][col] = board[row][col];
-                board[row+1][col] = 0;
-                board[row][col] = 0;
-            }
-            else if (board[row+3][col] == board[row][col] && board[row+2][col]==0 && board[row+1][col]==0){
-                sum = board[row+3][col] + board[row][col];
-                score += sum;
-                board[row+3][col] = sum;
-                board[row][col] = 0;
-            }
-
-            else if (board[row+2][col] == board[row+1][col]){
-                sum = board[row+2][col] + board[row+1][col];
-                score += sum;
-                board[row+2][col] = sum;
-                board[row+1][col] = board[row][col];
-                board[row][col] = 0;
-            }
-            else if (board[row+2][col] == board[row][col] && board[row+1][col]==0){
-                sum = board[row+2][col] + board[row][col];
-                score += sum;
-                board[row+2][col] = sum;
-                board[row][col] = 0;
-            }
-            else if (board[row+1][col] == board[row][col]){
-                sum = board[row+1][col] + board[row][col];
-                score += sum;
-                board[row+1][col] = sum;
-                board[row][col] = 0;
-            }
-
-            if (board[row+1][col] == 0){
-                board[row+1][col] = board[row][col];
-                board[row][col] = 0;
-            }
-            if (board[row+2][col] == 0){
-                board[row+2][col] = board[row+1][col];
-                board[row+1][col] = board[row][col];
-                board[row][col] = 0;
-            }
-            if (board[row+3][col] == 0) {
-                board[row+3][col] = board[row+2][col];
-                board[row+2][col] = board[row+1][col];
-                board[row+1][col] = board[row][col];
-                board[row][col] = 0;
-            }
-        }
-        // save the score and path after moving down in scores
-        scores.add(score + "D");
+    public int maxScore(){
+        return maxScore;
     }
 
     /**
-     * The moveRight methods have all 2048 game rules for the action move right.
-     * This method also save the score after moving right in scores global variable.
-     * @param board The 4by4 board which needs to move right.
+     * The maxPath method returns the moves that resulted in the maximum score.
+     * @return One letter per move, L for left, R for right, U for up and D for down.
      */
-    private static void moveRight(int[][] board){
-
-        int sum;                // holds sum after each possible move
-        int score = 0;
-
-        for (int row = 0; row < 4; row++){
-            int col = 0;
-            if (board[row][col+3] == board[row][col+2] && board[row][col+1] == board[row][col]){
-                sum = board[row][col+3] + board[row][col+2];
-                score += sum;
-                board[row][col+3] = sum;
-                sum = board[row][col] + board[row][col+1];
-                score += sum;
-                board[row][col+2] = sum;
-                board[row][col+1] = 0;
-                board[row][col] = 0;
-            }
-            else if (board[row][col+3] == board[row][col+2]) {
-                sum = board[row][col+3] + board[row][col+2];
-                score += sum;
-                board[row][col+3] = sum;
-                board[row][col+2] = board[row][col+1];
-                board[row][col+1] = board[row][col];
-                board[row][col] = 0;
-            }
-            else if (board[row][col+3] == board[row][col+1] && board[row][col+2]==0){
-                sum = board[row][col+3] + board[row][col+1];
-                score += sum;
-                board[row][col+3] = sum;
-                board[row][col+2]= board[row][col];
-                board[row][col+1] = 0;
-                board[row][col] = 0;
-            }
-            else if (board[row][col+3] == board[row][col] && board[row][col+2]==0 && board[row][col+1]==0){
-                sum = board[row][col+3] + board[row][col];
-                score += sum;
-                board[row][col+3] = sum;
-                board[row][col] = 0;
-            }
-            else if (board[row][col+2] == board[row][col+1]){
-                sum = board[row][col+2] + board[row][col+1];
-                score += sum;
-                board[row][col+2] = sum;
-                board[row][col+1] = board[row][col];
-                board[row][col] = 0;
-            }
-            else if (board[row][col+2] == board[row][col] && board[row][col+1]==0){
-                sum = board[row][col+2] + board[row][col];
-                score += sum;
-                board[row][col+2] = sum;
-                board[row][col] = 0;
-            }
-            else if (board[row][col+1] == board[row][col]){
-                sum = board[row][col+1] + board[row][col];
-                score += sum;
-                board[row][col+1] = sum;
-                board[row][col] = 0;
-            }
-            if (board[row][col+1] == 0){
-                board[row][col+1] = board[row][col];
-                board[row][col] = 0;
-            }
-            if (board[row][col+2] == 0){
-                board[row][col+2] = board[row][col+1];
-                board[row][col+1] = board[row][col];
-                board[row][col] = 0;
-            }
-            if (board[row][col+3] == 0) {
-                board[row][col+3] = board[row][col+2];
-                board[row][col+2] = board[row][col+1];
-                board[row][col+1] = board[row][col];
-                board[row][col] = 0;
-            }
-        }
-        // save the score and path after moving right in scores
-        scores.add(score + "R");
+    public String maxPath(){
+        StringBuilder path = new StringBuilder();
+        for (char move : maxPath)
+            path.append(move);
+        return path.toString();
     }
 
     /**
-     * The moveLeft methods have all 2048 game rules for the action move left.
-     * This method also save the score after moving left in scores global variable.
-     * @param board The 4by4 board which needs to move left.
+     * The printLevels method prints how many boards every level of the BFS scored and kept,
+     * how many were dropped as duplicates or by the score bound, and the memory of the level.
+     * The tree of strings has no levels to print.
+     * @param testCase The number of the test case, from 1.
      */
-    private static void moveLeft(int[][] board){
-        int sum;            // holds sum after each possible move
-        int score = 0;
-
-        for (int row = 0; row < 4; row++){
-            int col = 0;
-            if (board[row][col] == board[row][col+1] && board[row][col+2] == board[row][col+3]){
-                sum = board[row][col] + board[row][col+1];
-                score += sum;
-                board[row][col] = sum;
-                sum = board[row][col+2] + board[row][col+3];
-                score += sum;
-                board[row][col+1] = sum;
-                board[row][col+2] = 0;
-                board[row][col+3] = 0;
-            }
-            else if (board[row][col] == board[row][col+1]) {
-                sum = board[row][col] + board[row][col+1];
-                score += sum;
-                board[row][col] = sum;
-                board[row][col+1] = board[row][col+2];
-                board[row][col+2] = board[row][col+3];
-                board[row][col+3] = 0;
-            }
-            else if (board[row][col] == board[row][col+2] && board[row][col+1]==0){
-                sum = board[row][col] + board[row][col+2];
-                score += sum;
-                board[row][col] = sum;
-                board[row][col+1] = board[row][col+3];
-                board[row][col+2] = 0;
-                board[row][col+3] = 0;
-            }
-            else if (board[row][col] == board[row][col+3] && board[row][col+1]==0 && board[row][col+2]==0){
-                sum = board[row][col] + board[row][col+3];
-                score += sum;
-                board[row][col] = sum;
-                board[row][col+3] = 0;
-            }
-            else if (board[row][col+1] == board[row][col+2]){
-                sum = board[row][col+1] + board[row][col+2];
-                score += sum;
-                board[row][col+1] = sum;
-                board[row][col+2] = board[row][col+3];
-                board[row][col+3] = 0;
-            }
-            else if (board[row][col+1] == board[row][col+3] && board[row][col+2]==0){
-                sum = board[row][col+1] + board[row][col+3];
-                score += sum;
-                board[row][col+1] = sum;
-                board[row][col+3] = 0;
-            }
-            else if (board[row][col+2] == board[row][col+3]){
-                sum = board[row][col+2] + board[row][col+3];
-                score += sum;
-                board[row][col+2] = sum;
-                board[row][col+3] = 0;
-            }
-
-            if (board[row][col+2] == 0){
-                board[row][col+2] = board[row][col+3];
-                board[row][col+3] = 0;
-            }
-            if (board[row][col+1] == 0){
-                board[row][col+1] = board[row][col+2];
-                board[row][col+2] = board[row][col+3];
-                board[row][col+3] = 0;
-            }
-            if (board[row][col] == 0) {
-                board[row][col] = board[row][col+1];
-                board[row][col+1] = board[row][col+2];
-                board[row][col+2] = board[row][col+3];
-                board[row][col+3] = 0;
-            }
-        }
-        // save the score and path after moving left in scores
-        scores.add(score + "L");
-
+    public void printLevels(long testCase){
+        System.out.println("Test case " + testCase + ": " + maxScore + " " + maxPath());
+        for (LookaheadBfs.Level level : levels)
+            System.out.println("  " + level);
     }
 
     /**
      * The addNumbers methods adds number 2 in the first empty spot. It finds the empty spot
      * after vertically scanning the passed board to it.
-     * @param board The boards that 2 needs to be added to it.
+     * @param board The packed board that 2 needs to be added to it.
      * @return The board after adding 2.
      */
-    private static int[][] addNumbers(int[][] board){
-
-        // Vertically scan to find the first empty spot
-        // Break both loops when it is found and 2 is added to it.
-        outerloop:
-        for (int row = 0; row < 4; row++){
-            for (int col = 0; col < 4; col++){
-                if (board[row][col] == 0) {
-                    board[row][col] = 2;
-                    break outerloop;
-                }
-            }
-        }
-        // return the board after adding 2 to it
-        return board;
-    }
-
-    /**
-     * The deepCopy2DArray gets a deep copy from the original passed array.
-     * This method helps to find all possible boards after all possible moves
-     * without changing the original board.
-     * @param original The board that should be copied.
-     * @return Copy of the board.
-     */
-    private static int[][] deepCopy2DArray(int[][] original) {
-
-        final int SIZE = 4;
-        int[][] newArray = new int[SIZE][SIZE];
+    private static long addNumbers(long board){
 
-        for (int i = 0; i < SIZE; i++) {
-            for (int j = 0; j < SIZE; j++)
-                newArray[i][j] = original[i][j];
-        }
-        return newArray;
+        // Vertically scan to find the first empty spot, cells are numbered row by row
+        // so the first empty nibble is the first empty spot; a full board is not changed
+        return LookaheadBfs.addTwo(board);
     }
 
     /**
      * The play method starts the game. This method has layers and codes
      * related to each move of 3 moves.
-     * @param board The board of current game to play
+     * @param board The packed board of current game to play
      */
-    private static void play(int[][] board){
+    private void play(long board){
 
         // all possibilities for the first move
         moves(board);
@@ -587,34 +257,18 @@ public class Game2048 {
     /**
      * The moves method calls all 4 possible moves and saves the board
      * after each move in middleGameBoards to keep all the possibilities.
-     * @param board The board that we are playing and testing.
+     * The score and path of each move are saved in scores, in the order
+     * left, right, up and down.
+     * @param board The packed board that we are playing and testing.
      */
-    private static void moves(int[][] board){
-        int[][] tempBoard;
-
-        // left move
-        tempBoard = deepCopy2DArray(board);
-        moveLeft(tempBoard);
-        tempBoard = addNumbers(tempBoard);
-        middleGameBoards.add(tempBoard);
-
-        // right move
-        tempBoard = deepCopy2DArray(board);
-        moveRight(tempBoard);
-        tempBoard = addNumbers(tempBoard);
-        middleGameBoards.add(tempBoard);
-
-        // up move
-        tempBoard = deepCopy2DArray(board);
-        moveUp(tempBoard);
-        tempBoard = addNumbers(tempBoard);
-        middleGameBoards.add(tempBoard);
-
-        // down move
-        tempBoard = deepCopy2DArray(board);
-        moveDown(tempBoard);
-        tempBoard = addNumbers(tempBoard);
-        middleGameBoards.add(tempBoard);
+    private void moves(long board){
+
+        // the packed board is a value, so every move starts from the same board
+        // without copying it; the engine looks each row up in its move tables
+        for (int move = 0; move < 4; move++){
+            scores.add(Bitboard.moveScore(board, move) + "" + Bitboard.MOVE_LETTERS[move]);
+            middleGameBoards.add(addNumbers(Bitboard.move(board, move)));
+        }
     }
 
     /**
@@ -656,7 +310,7 @@ public class Game2048 {
      * @param list The scores related to the current board.
      * @param listSize The size of the scores list
      */
-    private static void createTree(ArrayList<String> list,
+    private void createTree(ArrayList<String> list,
                                    int listSize)
     {
         // assign root
@@ -673,7 +327,7 @@ public class Game2048 {
      * queue.
      * @param value The string value of each node
      */
-    private static void insertValue(String value)
+    private void insertValue(String value)
     {
         // create new node and add value as data to it
         Node node = newNode(value);
@@ -714,7 +368,7 @@ public class Game2048 {
      * score.
      * @param root
      */
-    private static void levelOrderTraversal(Node root)
+    private void levelOrderTraversal(Node root)
     {
         if (root == null)
             return;
@@ -774,7 +428,7 @@ public class Game2048 {
      * maxScore it updates the maxScore and calls path() method to find its path.
      * @param s The string containing the current node data.
      */
-    private static void number(String s){
+    private void number(String s){
 
         int tempNum;            // holds a temporary number
         String temp = "0";      // holds a temporary string
@@ -813,7 +467,7 @@ public class Game2048 {
      * string, removes commas and extract letters.
      * @param s The string data of the maxScore node.
      */
-    private static void path(String s){
+    private void path(String s){
 
         // clean maxPath from previous path
         if (!maxPath.isEmpty())
@@ -826,48 +480,4 @@ public class Game2048 {
             }
         }
     }
-
-    /**
-     * The writeFile method writes the maximum score and its path according to the
-     * requested format in an output file called 2048_out.txt.
-     * @throws IOException Handles exception for input and output file.
-     */
-    private static void writeFile() throws IOException {
-        String temp = "";
-
-        // write via scanner
-        PrintWriter writer = new PrintWriter("2048_out.txt");
-
-        // the format requested by the assignment
-        writer.print(maxScore + ",");
-        for (int i = 0; i < maxPath.size(); i++){
-            temp = temp + maxPath.get(i) + ",";
-        }
-        if(temp.length()!=0){
-            temp = temp.substring(0, (temp.length()-1));
-        }
-        writer.print(temp);
-        writer.close();
-    }
-
-    /**
-     * The appendFile method appends the new maximum score and its path according to the
-     * requested format in an output file called 2048_out.txt.
-     * This method is used for more than 1 test cases.
-     * @throws IOException Handles exception for input and output file.
-     */
-    private static void appendFile() throws IOException {
-        String temp = "";
-
-        FileWriter writer = new FileWriter("2048_out.txt", true);
-        PrintWriter outputFile = new PrintWriter(writer);
-        outputFile.println();
-        outputFile.print(maxScore + ",");
-        for (int i = 0; i < maxPath.size(); i++){
-            temp = temp + maxPath.get(i) + ",";
-        }
-        temp = temp.substring(0, (temp.length()-1));
-        outputFile.print(temp);
-        outputFile.close();
-    }
-}
\ No newline at end of file
+}
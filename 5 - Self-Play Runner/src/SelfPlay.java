@@ -0,0 +1,174 @@
+/**
+ * The SelfPlay program plays many games of 2048 with one of the strategies of the milestones and
+ * prints their statistics: the win rate (games that reached 2048), the score percentiles, how many
+ * games ended with each max tile, and how many games were played per second. The games are played
+ * at the same time on a pool of threads, each game with its own board, score and random generator.
+ * The first argument names the strategy:
+ * "random" and "maximum" are the random and maximum hill climbing of milestone 2, "minimax" and
+ * "expectimax" the search of milestone 3, and "heuristic" the minimax with the empty cells
+ * heuristic of the improved milestone 3, and "weighted" the expectimax with the weighted heuristic
+ * of engine.WeightedEvaluator.
+ * "-games N" sets the number of games (1000 by default), "-threads N" the number of games played at
+ * the same time (the number of processors by default) and "-seed S" the seed of the first game, so
+ * a batch can be played again with the same tiles. The search strategies also take "-depth N",
+ * "-time MS", "-tt MB" and "-symmetric" as in milestone 3; one transposition table is shared by
+ * all the games.
+ * "-weights FILE" reads the weights of the weighted heuristic from a weights file. The expectimax
+ * strategies also take "-cutoff P" and "-fours N" to stop expanding unlikely paths.
+ * "-book FILE" plays the first moves of every game from an opening book built by
+ * engine.OpeningBookBuilder, asking the strategy for the moves of the boards that are not in it.
+ * "-trace FILE" appends every game, turn by turn and with its seed, to a binary trace file that
+ * engine.TraceReplay replays and checks.
+ * "-boards FILE" plays one game from every board of a board file (text in the 2048_in.txt format or
+ * binary, see engine.BoardFile) instead of games that start from two random 2s.
+ * This program works for a specific input & output, it does not prompt user. Therefore, it does not
+ * handle any exceptions.
+ *
+ * @author  Yalda Nafisinia
+ * @version 4.0
+ */
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+import engine.BoardFile;
+import engine.BookStrategy;
+import engine.Evaluator;
+import engine.OpeningBook;
+import engine.SearchEngine;
+import engine.SearchMetrics;
+import engine.SearchStrategy;
+import engine.SelfPlayRunner;
+import engine.SelfPlayStats;
+import engine.Strategy;
+import engine.TraceWriter;
+import engine.TranspositionTable;
+import engine.WeightedEvaluator;
+
+public class SelfPlay {
+
+    /**
+     * Plays the games and prints their statistics.
+     *
+     * @param args A string array containing the command line arguments.
+     * @throws IOException if the board file, the weights file or the book file cannot be read,
+     *         or the trace file cannot be written.
+     */
+    public static void main(String[] args) throws IOException{
+
+        // pick the strategy, the number of games and threads, and the search settings
+        String name = args.length > 0 ? args[0] : "maximum";
+        int games = 1000;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long seed = System.nanoTime();
+        int depth = 3;
+        long timeBudgetNanos = 0;
+        boolean depthGiven = false;
+        // megabytes of the transposition table, 0 for none, and whether it is symmetric
+        int tableMegabytes = 0;
+        boolean symmetric = false;
+        long[] boards = null;
+        WeightedEvaluator weighted = null;
+        double minProbability = 0;
+        int maxFours = Integer.MAX_VALUE;
+        OpeningBook book = null;
+        // the trace file every game is appended to, null to keep no traces
+        String traceFile = null;
+        for (int i = 1; i < args.length; i++){
+            if (args[i].equals("-games"))
+                games = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-threads"))
+                threads = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-seed"))
+                seed = Long.parseLong(args[++i]);
+            else if (args[i].equals("-depth")){
+                depth = Integer.parseInt(args[++i]);
+                depthGiven = true;
+            }
+            else if (args[i].equals("-time"))
+                timeBudgetNanos = Long.parseLong(args[++i]) * 1_000_000L;
+            else if (args[i].equals("-tt"))
+                tableMegabytes = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-symmetric"))
+                symmetric = true;
+            else if (args[i].equals("-boards"))
+                boards = BoardFile.readAll(Paths.get(args[++i]));
+            else if (args[i].equals("-weights"))
+                weighted = WeightedEvaluator.load(Paths.get(args[++i]));
+            else if (args[i].equals("-cutoff"))
+                minProbability = Double.parseDouble(args[++i]);
+            else if (args[i].equals("-fours"))
+                maxFours = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-book"))
+                book = OpeningBook.read(Paths.get(args[++i]));
+            else if (args[i].equals("-trace"))
+                traceFile = args[++i];
+        }
+        // with a time budget and no depth, search as deep as the clock allows
+        if (timeBudgetNanos > 0 && !depthGiven)
+            depth = SearchEngine.MAX_DEPTH;
+        // with "-symmetric", the turned and mirrored images of a board share one entry
+        TranspositionTable table = tableMegabytes > 0 ? new TranspositionTable(tableMegabytes, symmetric) : null;
+
+        Strategy strategy;
+        switch (name.toLowerCase()){
+            case "random":
+                strategy = new Game2048_m2.RandomHillClimbing();
+                break;
+            case "maximum":
+                strategy = new Game2048_m2.MaximumHillClimbing();
+                break;
+            case "minimax":
+                strategy = new SearchStrategy(new SearchEngine(SearchEngine.Mode.MINIMAX, Evaluator.MERGE_SCORE, table),
+                        depth, timeBudgetNanos);
+                break;
+            case "expectimax":
+                strategy = new SearchStrategy(new SearchEngine(SearchEngine.Mode.EXPECTIMAX, Evaluator.MERGE_SCORE, table,
+                        null, minProbability, maxFours), depth, timeBudgetNanos);
+                break;
+            case "heuristic":
+                strategy = new SearchStrategy(new SearchEngine(SearchEngine.Mode.MINIMAX, Evaluator.EMPTY_CELLS, table),
+                        depth, timeBudgetNanos);
+                break;
+            case "weighted":
+                strategy = new SearchStrategy(new SearchEngine(SearchEngine.Mode.EXPECTIMAX,
+                        weighted != null ? weighted : WeightedEvaluator.defaults(), table, null, minProbability, maxFours),
+                        depth, timeBudgetNanos);
+                break;
+            default:
+                System.out.println("Unknown strategy " + name + ", use random, maximum, minimax, expectimax, heuristic or weighted.");
+                return;
+        }
+        // with a book, the boards of the book are played without asking the strategy
+        BookStrategy opening = null;
+        if (book != null){
+            opening = new BookStrategy(book, strategy);
+            strategy = opening;
+        }
+
+        TraceWriter traces = traceFile != null ? TraceWriter.open(Paths.get(traceFile)) : null;
+        SelfPlayRunner runner = new SelfPlayRunner(strategy, threads, traces);
+        SelfPlayStats stats;
+        if (boards != null){
+            System.out.println("Playing " + boards.length + " games of " + name + " from the board file on "
+                    + threads + " threads, seed " + seed);
+            stats = runner.run(boards, seed);
+        }
+        else {
+            System.out.println("Playing " + games + " games of " + name + " on " + threads + " threads, seed " + seed);
+            stats = runner.run(games, seed);
+        }
+        System.out.print(stats.report());
+        if (traces != null){
+            System.out.println(traces.games() + " games appended to the trace file");
+            traces.close();
+        }
+        if (table != null)
+            System.out.println(table.summary());
+        if (opening != null)
+            System.out.println(opening.summary());
+        // with -Dengine.metrics=true, what the searches of all the games cost
+        if (SearchMetrics.ENABLED)
+            System.out.print(SearchMetrics.summary());
+    }
+}
@@ -0,0 +1,139 @@
+package engine;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * The MoveBenchmark class measures the single board operations on every board of the BoardCorpus:
+ * the four moves of the packed board, the legal moves bitmask, the move check of a GameSession,
+ * the WeightedEvaluator leaf score, placing a random tile (from a fixed seed, so every run draws
+ * the same cells), and the int board code of the milestones (deepCopy2DArray, a move on a copy and
+ * the move check on copies) as a baseline.
+ * Every invocation goes over the whole corpus, and the result is reported per board.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Thread)
+@OperationsPerInvocation(MoveBenchmark.BOARDS)
+public class MoveBenchmark {
+
+    // number of boards of the corpus, checked when the state is set up
+    static final int BOARDS = 10;
+
+    // the corpus as packed boards, int boards and game sessions
+    private long[] boards;
+    private int[][][] intBoards;
+    private GameSession[] sessions;
+
+    // draws the new tiles, every corpus board has at least one empty cell
+    private SplittableRandom random;
+
+    // scores the leaves with the default weights
+    private WeightedEvaluator weighted;
+
+    @Setup
+    public void setUp() {
+        boards = BoardCorpus.boards();
+        if (boards.length != BOARDS)
+            throw new IllegalStateException("BoardCorpus has " + boards.length + " boards, expected " + BOARDS);
+        intBoards = new int[BOARDS][][];
+        sessions = new GameSession[BOARDS];
+        for (int i = 0; i < BOARDS; i++) {
+            intBoards[i] = Bitboard.unpack(boards[i]);
+            sessions[i] = new GameSession(boards[i], new SplittableRandom(0));
+        }
+        random = new SplittableRandom(2048);
+        weighted = WeightedEvaluator.defaults();
+    }
+
+    @Benchmark
+    public void moveLeft(Blackhole blackhole) {
+        for (long board : boards)
+            blackhole.consume(Bitboard.moveLeft(board));
+    }
+
+    @Benchmark
+    public void moveRight(Blackhole blackhole) {
+        for (long board : boards)
+            blackhole.consume(Bitboard.moveRight(board));
+    }
+
+    @Benchmark
+    public void moveUp(Blackhole blackhole) {
+        for (long board : boards)
+            blackhole.consume(Bitboard.moveUp(board));
+    }
+
+    @Benchmark
+    public void moveDown(Blackhole blackhole) {
+        for (long board : boards)
+            blackhole.consume(Bitboard.moveDown(board));
+    }
+
+    @Benchmark
+    public void moveScore(Blackhole blackhole) {
+        for (long board : boards)
+            blackhole.consume(Bitboard.moveScore(board, Bitboard.LEFT));
+    }
+
+    @Benchmark
+    public void isMovesAvailable(Blackhole blackhole) {
+        for (GameSession session : sessions)
+            blackhole.consume(session.isMovesAvailable());
+    }
+
+    @Benchmark
+    public void legalMoves(Blackhole blackhole) {
+        for (long board : boards)
+            blackhole.consume(Bitboard.legalMoves(board));
+    }
+
+    @Benchmark
+    public void weightedEvaluate(Blackhole blackhole) {
+        for (long board : boards)
+            blackhole.consume(weighted.evaluate(board, 0));
+    }
+
+    @Benchmark
+    public void addRandom2or4(Blackhole blackhole) {
+        for (long board : boards)
+            blackhole.consume(GameSession.addRandom2or4(board, random));
+    }
+
+    @Benchmark
+    public void legacyDeepCopy2DArray(Blackhole blackhole) {
+        for (int[][] board : intBoards)
+            blackhole.consume(BoardOracle.deepCopy2DArray(board));
+    }
+
+    @Benchmark
+    public void legacyMoveLeft(Blackhole blackhole) {
+        for (int[][] board : intBoards) {
+            int[][] copy = BoardOracle.deepCopy2DArray(board);
+            blackhole.consume(BoardOracle.moveLeft(copy));
+            blackhole.consume(copy);
+        }
+    }
+
+    @Benchmark
+    public void legacyIsMovesAvailable(Blackhole blackhole) {
+        for (int[][] board : intBoards)
+            blackhole.consume(BoardOracle.isMovesAvailable(board));
+    }
+}
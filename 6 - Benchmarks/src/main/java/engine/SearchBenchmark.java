@@ -0,0 +1,82 @@
+package engine;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * The SearchBenchmark class measures the search on every board of the BoardCorpus: one maximizer
+ * node, one minimizer node (a chance node in expectimax mode) and a full move decision as the
+ * milestones make it. The search runs on the calling thread without a transposition table, so
+ * every invocation visits the same nodes and results can be compared between commits. It lives
+ * in the engine package to reach the package-private entry points of SearchEngine.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Thread)
+@OperationsPerInvocation(MoveBenchmark.BOARDS)
+public class SearchBenchmark {
+
+    @Param({"MINIMAX", "EXPECTIMAX"})
+    public String mode;
+
+    // MERGE_SCORE is the original minimax, EMPTY_CELLS the heuristic improvement, WEIGHTED the
+    // WeightedEvaluator with its default weights
+    @Param({"MERGE_SCORE", "EMPTY_CELLS", "WEIGHTED"})
+    public String evaluator;
+
+    // search depth counted like the milestones, 3 is maximizer, minimizer, maximizer
+    @Param({"3", "5"})
+    public int depth;
+
+    private long[] boards;
+    private GameSession[] sessions;
+    private SearchEngine search;
+    private SearchStrategy strategy;
+
+    @Setup
+    public void setUp() {
+        boards = BoardCorpus.boards();
+        sessions = new GameSession[boards.length];
+        for (int i = 0; i < boards.length; i++)
+            sessions[i] = new GameSession(boards[i], new SplittableRandom(0));
+        search = new SearchEngine(SearchEngine.Mode.valueOf(mode),
+                evaluator.equals("WEIGHTED") ? WeightedEvaluator.defaults()
+                        : evaluator.equals("EMPTY_CELLS") ? Evaluator.EMPTY_CELLS : Evaluator.MERGE_SCORE);
+        strategy = new SearchStrategy(search, depth);
+    }
+
+    @Benchmark
+    public void maximizer(Blackhole blackhole) {
+        for (long board : boards)
+            blackhole.consume(search.maximizerValue(board, (depth + 1) / 2));
+    }
+
+    @Benchmark
+    public void minimizer(Blackhole blackhole) {
+        for (long board : boards)
+            blackhole.consume(search.computerTurnValue(board, (depth - 1) / 2));
+    }
+
+    @Benchmark
+    public void decision(Blackhole blackhole) {
+        for (GameSession session : sessions)
+            blackhole.consume(strategy.chooseMove(session));
+    }
+}